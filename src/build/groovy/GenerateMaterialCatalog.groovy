@@ -0,0 +1,139 @@
+/*
+ * Generates GeneratedMaterialCatalog, the classification of every Material of the spigot-api the plugin is
+ * built against: whether the Global Shop sells it, its ShopItemType and its base price. The keyword rules
+ * are read from the constants of GlobalShop (the price maps, PROHIBITED_WORDS and PROHIBITED_MATERIALS)
+ * and evaluated like GlobalShop#classifyMaterials() does, so the plugin loads the table on enable instead
+ * of matching every Material name against every keyword.
+ *
+ * The classification is also compared with material-catalog.lock, in the project directory, and every
+ * Material that was added, removed or classified differently is reported, so that updating spigot-api
+ * never changes what the shop sells without anyone noticing. The lock file is committed, and the build
+ * only writes it when it runs with -Dcatalog.updateLock: without it, a missing lock file is only reported,
+ * so a clean checkout still builds.
+ *
+ * It runs in the generate-sources phase through gmavenplus, which binds project, session and log.
+ */
+
+import java.math.RoundingMode
+import java.util.regex.Pattern
+
+def basedir = project.basedir
+def source = new File(basedir, 'src/main/java/io/github/toniidev/toniishops/classes/GlobalShop.java').getText('UTF-8')
+def output = new File(project.build.directory, 'generated-sources/catalog/io/github/toniidev/toniishops/classes/GeneratedMaterialCatalog.java')
+def lock = new File(basedir, 'material-catalog.lock')
+def updateLock = session.userProperties.getProperty('catalog.updateLock') != null
+def apiVersion = project.artifactMap['org.spigotmc:spigot-api']?.baseVersion ?: 'unknown'
+
+/// The body of a constant of GlobalShop, between the parentheses of its initializer
+String constant(String text, String name) {
+    def matcher = Pattern.compile(/\b/ + name + /\s*=\s*[\w.]+\((.*?)\);/, Pattern.DOTALL).matcher(text)
+    if (!matcher.find()) throw new IllegalStateException("GlobalShop." + name + " not found, the catalog can't be generated")
+    return matcher.group(1)
+}
+
+/// The keys and prices of a price map, in the order they are declared
+List<List> prices(String text, String name) {
+    return (constant(text, name) =~ /"([^"]+)"\s*,\s*([0-9.]+)/).collect { [it[1], it[2] as BigDecimal] }
+}
+
+/// Same as StringUtils#doesMaterialNameContainString()
+boolean containsString(String materialName, String string) {
+    def fields = materialName.toLowerCase().split('_') as List
+    return string.split('_').every { fields.contains(it.toLowerCase()) }
+}
+
+/// The price maps, in the order GlobalShop#findMaterialInfo() searches them
+def maps = [
+        ['FOOD', prices(source, 'FOOD_PRICES')],
+        ['ITEM', prices(source, 'ITEM_PRICES')],
+        ['BLOCK', prices(source, 'BLOCK_PRICES')],
+        ['ORE', prices(source, 'ORE_PRICES')],
+        ['DECORATIVE', prices(source, 'DECORATION_PRICES')]
+]
+def prohibitedWords = (constant(source, 'PROHIBITED_WORDS') =~ /"([^"]+)"/).collect { it[1] }
+def prohibitedMaterials = (constant(source, 'PROHIBITED_MATERIALS') =~ /Material\.(\w+)/).collect { it[1] } as Set
+
+def materials = Class.forName('org.bukkit.Material', false, this.class.classLoader).enumConstants
+long hash = 1125899906842597L
+def catalog = []
+materials.eachWithIndex { material, ordinal ->
+    String name = material.name()
+    for (int i = 0; i < name.length(); i++) hash = 31 * hash + (long) name.charAt(i)
+    hash = 31 * hash + (long) '\n'.charAt(0)
+
+    def info = null
+    for (map in maps) {
+        def entry = map[1].find { containsString(name, it[0]) }
+        if (entry != null) {
+            info = [map[0], entry[1]]
+            break
+        }
+    }
+
+    boolean allowed = !prohibitedMaterials.contains(name) && !prohibitedWords.any { containsString(name, it) }
+    if (info != null && info[1] != 0 && allowed) {
+        catalog << [ordinal: ordinal, name: name, type: info[0], cents: (info[1] * 100).setScale(0, RoundingMode.HALF_UP).longValueExact()]
+    }
+}
+
+output.parentFile.mkdirs()
+output.withWriter('UTF-8') { out ->
+    out << 'package io.github.toniidev.toniishops.classes;\n\n'
+    out << 'import io.github.toniidev.toniishops.enums.ShopItemType;\n\n'
+    out << '/**\n'
+    out << ' * The Materials the Global Shop sells, classified at build time against spigot-api ' + apiVersion + '\n'
+    out << ' * by src/build/groovy/GenerateMaterialCatalog.groovy. Do not edit it, it is generated on every build.\n'
+    out << ' * See GlobalShop#classifyMaterials()\n'
+    out << ' */\n'
+    out << 'final class GeneratedMaterialCatalog {\n'
+    out << '    static final String API_VERSION = "' + apiVersion + '";\n'
+    out << '    /// The TradeJournal#hashMaterials() of the Materials the catalog was generated with. The ordinals are only valid if it matches\n'
+    out << '    static final long MATERIALS_HASH = ' + hash + 'L;\n\n'
+    out << '    static final int[] ORDINALS = {' + catalog.collect { it.ordinal }.join(', ') + '};\n'
+    out << '    static final ShopItemType[] TYPES = {' + catalog.collect { 'ShopItemType.' + it.type }.join(', ') + '};\n'
+    out << '    /// Base prices, in cents. See Money\n'
+    out << '    static final long[] PRICES = {' + catalog.collect { it.cents + 'L' }.join(', ') + '};\n\n'
+    out << '    private GeneratedMaterialCatalog() {\n'
+    out << '    }\n'
+    out << '}\n'
+}
+log.info("Generated the material catalog: " + catalog.size() + " of " + materials.length + " Materials are sold")
+
+/// Compare with the lock file, by Material name
+def lines = catalog.collect { it.name + ' ' + it.type + ' ' + it.cents }
+if (!lock.exists() && !updateLock) {
+    log.warn("material-catalog.lock is missing, so changes to the catalog can't be reported. " +
+            "Run the build once with -Dcatalog.updateLock against spigot-api " + apiVersion + " and commit it")
+}
+if (lock.exists()) {
+    def previous = lock.readLines('UTF-8').findAll { it && !it.startsWith('#') }.collectEntries { [(it.split(' ')[0]): it] }
+    def current = lines.collectEntries { [(it.split(' ')[0]): it] }
+
+    def changes = []
+    current.each { name, line ->
+        if (!previous.containsKey(name)) changes << 'now sold: ' + line
+        else if (previous[name] != line) changes << 'reclassified: ' + previous[name] + ' -> ' + line
+    }
+    previous.each { name, line ->
+        if (!current.containsKey(name)) changes << 'not sold anymore: ' + line
+    }
+
+    if (changes.isEmpty()) {
+        log.info("The material catalog matches material-catalog.lock")
+    } else {
+        log.warn(changes.size() + " Materials are classified differently than in material-catalog.lock (spigot-api " + apiVersion + "):")
+        changes.each { log.warn('  ' + it) }
+        if (!updateLock) {
+            log.warn("Run the build with -Dcatalog.updateLock to accept the changes")
+        }
+    }
+}
+
+if (updateLock) {
+    lock.withWriter('UTF-8') { out ->
+        out << '# The Materials the Global Shop sells, with their ShopItemType and base price in cents.\n'
+        out << '# Generated against spigot-api ' + apiVersion + ' by src/build/groovy/GenerateMaterialCatalog.groovy\n'
+        lines.each { out << it << '\n' }
+    }
+    log.info("Wrote material-catalog.lock")
+}
@@ -1,6 +1,16 @@
 package io.github.toniidev.toniishops;
 
+import io.github.toniidev.toniishops.classes.CategoryView;
 import io.github.toniidev.toniishops.classes.GlobalShop;
+import io.github.toniidev.toniishops.classes.JournalReplay;
+import io.github.toniidev.toniishops.classes.MarketSnapshot;
+import io.github.toniidev.toniishops.classes.MarketState;
+import io.github.toniidev.toniishops.classes.OrderBook;
+import io.github.toniidev.toniishops.classes.ShopCatalog;
+import io.github.toniidev.toniishops.classes.TradeExporter;
+import io.github.toniidev.toniishops.classes.TradeIndex;
+import io.github.toniidev.toniishops.classes.TradeJournal;
+import io.github.toniidev.toniishops.classes.TradeRecorder;
 import io.github.toniidev.toniishops.commands.*;
 import io.github.toniidev.toniishops.factories.InputFactory;
 import io.github.toniidev.toniishops.factories.InventoryFactory;
@@ -9,8 +19,13 @@ import io.github.toniidev.toniishops.listeners.PlayerListener;
 import io.github.toniidev.toniishops.utils.InitializeUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.File;
+import java.io.IOException;
 
 public final class ToniiShops extends JavaPlugin {
+    private ShopCatalog catalog;
 
     @Override
     public void onEnable() {
@@ -26,17 +41,116 @@ public final class ToniiShops extends JavaPlugin {
         new InitializeUtils(new Purse(this), "open-purse").initialize();
         new InitializeUtils(new SellCustomAmount(this), "sell-custom-amount").initialize();
         new InitializeUtils(new Buy(this), "buy").initialize();
+        new InitializeUtils(new PlaceOrder(), "order").initialize();
 
         Bukkit.getPluginManager().registerEvents(new BlockListener(this), this);
         Bukkit.getPluginManager().registerEvents(new InventoryFactory(), this);
         Bukkit.getPluginManager().registerEvents(new PlayerListener(), this);
         Bukkit.getPluginManager().registerEvents(new InputFactory(this), this);
 
+        catalog = new ShopCatalog(this);
+        catalog.load();
         GlobalShop.initializeShop(200);
+        try {
+            catalog.watch();
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Could not watch the catalog file, changes need a restart: " + e.getMessage());
+        }
+
+        try {
+            TradeRecorder.setJournal(new TradeJournal(new File(getDataFolder(), "journal")));
+        } catch (IOException e) {
+            Bukkit.getLogger().severe("Could not open the trade journal, trades won't be recorded: " + e.getMessage());
+        }
+
+        if (TradeRecorder.getJournal() != null) {
+            try {
+                TradeRecorder.setIndex(new TradeIndex(this, TradeRecorder.getJournal()));
+            } catch (IOException e) {
+                Bukkit.getLogger().severe("Could not index the trade journal, trade history can't be queried: " + e.getMessage());
+            }
+
+            /// Restore the market as it was before the server stopped: the last snapshot, then the trades after it
+            try {
+                long start = System.currentTimeMillis();
+                File directory = TradeRecorder.getJournal().getDirectory();
+                MarketSnapshot snapshot = MarketSnapshot.read(directory);
+                if (snapshot != null) snapshot.restore();
+
+                long records = JournalReplay.replay(directory, snapshot == null ? 0 : snapshot.getLocation(), Runtime.getRuntime().availableProcessors());
+                Bukkit.getLogger().info((snapshot == null ? "Replayed " : "Restored the market snapshot and replayed ")
+                        + records + " trades of the journal in " + (System.currentTimeMillis() - start) + "ms.");
+            } catch (IOException e) {
+                Bukkit.getLogger().severe("Could not replay the trade journal, the market starts from scratch: " + e.getMessage());
+            }
+        }
+
+        try {
+            TradeRecorder.setExporter(new TradeExporter(new File(getDataFolder(), "exports")));
+        } catch (IOException e) {
+            Bukkit.getLogger().severe("Could not start the trade export, trades won't be exported: " + e.getMessage());
+        }
+
+        /// Write the journal to disk off the main thread
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                TradeJournal journal = TradeRecorder.getJournal();
+                if (journal != null) journal.flush();
+            }
+        }.runTaskTimerAsynchronously(this, TradeJournal.FLUSH_PERIOD, TradeJournal.FLUSH_PERIOD);
+
+        /// Snapshot the market, so that the next startup only replays the trades after it
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                TradeJournal journal = TradeRecorder.getJournal();
+                if (journal != null) MarketSnapshot.save(ToniiShops.this, journal);
+            }
+        }.runTaskTimer(this, MarketSnapshot.SNAPSHOT_PERIOD, MarketSnapshot.SNAPSHOT_PERIOD);
+
+        /// Restock sold-out items and drain flooded ones, then move them in the price orders of their categories
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                MarketState.tick();
+                CategoryView.refresh();
+            }
+        }.runTaskTimer(this, MarketState.TICK_PERIOD, MarketState.TICK_PERIOD);
+
+        /// Match the limit orders in a batch
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                OrderBook.matchAll();
+            }
+        }.runTaskTimer(this, OrderBook.MATCH_PERIOD, OrderBook.MATCH_PERIOD);
     }
 
     @Override
     public void onDisable() {
         // Plugin shutdown logic
+        if (catalog != null) catalog.close();
+
+        TradeJournal journal = TradeRecorder.getJournal();
+        if (journal != null) {
+            try {
+                MarketSnapshot.capture(journal).write(journal.getDirectory());
+            } catch (IOException e) {
+                Bukkit.getLogger().warning("Could not write the market snapshot, the next startup replays more of the journal: " + e.getMessage());
+            }
+            journal.close();
+            TradeRecorder.setJournal(null);
+            TradeRecorder.setIndex(null);
+        }
+
+        TradeExporter exporter = TradeRecorder.getExporter();
+        if (exporter != null) {
+            exporter.close();
+            TradeRecorder.setExporter(null);
+            if (exporter.getDropped() > 0) {
+                Bukkit.getLogger().warning(exporter.getDropped() + " trades were left out of the trade export because it fell behind.");
+            }
+        }
     }
 }
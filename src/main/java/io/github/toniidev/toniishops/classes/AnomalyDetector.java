@@ -0,0 +1,197 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import io.github.toniidev.toniishops.factories.StringFactory;
+import io.github.toniidev.toniishops.strings.ConsoleString;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Watches the items every player sells and warns the staff when a player sells far more of a Material
+ * than they and the other players usually do, which is how dupe exploits show up.
+ * <p>
+ * The memory it uses doesn't depend on how many players trade. The amount of items each (player, Material)
+ * pair sold is kept in two Count-Min sketches that decay with time: a short one, whose value is about what
+ * the pair sold in the last minutes, and a long one, whose value is the usual rate of the pair over the
+ * last day. Each Material also keeps an exponentially weighted mean and variance of the short values of
+ * all its sellers. A sell is flagged when its short value is above MIN_VOLUME, at least FACTOR times
+ * both what the player usually sells and what sellers of the Material usually sell, and more than
+ * Z_SCORE standard deviations above the Material mean.
+ * It must only be used from the main thread.
+ */
+public class AnomalyDetector {
+    /// The half life of the short sketch and of the long sketch, in milliseconds
+    public static final long SHORT_HALF_LIFE = 5 * 60 * 1000L;
+    public static final long LONG_HALF_LIFE = 24 * 60 * 60 * 1000L;
+    /// The smallest short value that can be flagged: a full inventory of stacks
+    public static final double MIN_VOLUME = 36 * 64;
+    public static final double FACTOR = 10;
+    public static final double Z_SCORE = 6;
+    /// How many sells of a Material have to be seen before its sellers can be flagged
+    public static final int WARM_UP = 50;
+    /// The weight of each new sell in the mean and variance of a Material
+    private static final double ALPHA = 0.02;
+    /// How long a (player, Material) pair is not flagged again after being flagged
+    private static final long COOLDOWN = 10 * 60 * 1000L;
+
+    private static final int MATERIALS = Material.values().length;
+
+    private static final DecayingSketch shortSketch = new DecayingSketch(4, 4096, SHORT_HALF_LIFE);
+    private static final DecayingSketch longSketch = new DecayingSketch(4, 4096, LONG_HALF_LIFE);
+    private static final double[] mean = new double[MATERIALS];
+    private static final double[] variance = new double[MATERIALS];
+    private static final int[] samples = new int[MATERIALS];
+    /// When each bucket of pairs was last flagged. Pairs sharing a bucket share the cooldown
+    private static final long[] lastFlagged = new long[4096];
+
+    private static long flagged = 0;
+
+    /**
+     * Feeds a trade to the detector. Only sells are watched, since dupes are turned into money by selling
+     *
+     * @param kind     The kind of trade
+     * @param material The Material traded
+     * @param player   The UUID of the player that traded
+     * @param amount   The amount of items traded
+     * @param time     When the trade was made
+     */
+    public static void record(TradeKind kind, Material material, UUID player, long amount, long time) {
+        if (kind.isBuy() || kind.isPlayerShop() || !kind.isTrade() || amount <= 0) return;
+
+        int ordinal = material.ordinal();
+        long key = hash(player.getMostSignificantBits(), player.getLeastSignificantBits(), ordinal);
+
+        /// The usual rate of the pair, before this sell, scaled to the short half life
+        double usual = longSketch.estimate(key, time) * SHORT_HALF_LIFE / LONG_HALF_LIFE;
+        longSketch.add(key, amount, time);
+        double recent = shortSketch.add(key, amount, time);
+
+        boolean isOutlier = false;
+        if (samples[ordinal] >= WARM_UP && recent >= MIN_VOLUME) {
+            double deviation = Math.sqrt(variance[ordinal]);
+            isOutlier = recent > FACTOR * Math.max(usual, mean[ordinal])
+                    && recent > mean[ordinal] + Z_SCORE * deviation;
+        }
+
+        /// Outliers are left out of the mean, so that a dupe doesn't make the next one look normal
+        if (!isOutlier) {
+            double difference = recent - mean[ordinal];
+            mean[ordinal] += ALPHA * difference;
+            variance[ordinal] = (1 - ALPHA) * (variance[ordinal] + ALPHA * difference * difference);
+            if (samples[ordinal] < WARM_UP) samples[ordinal]++;
+            return;
+        }
+
+        int bucket = (int) (key >>> 52);
+        if (time - lastFlagged[bucket] < COOLDOWN) return;
+        lastFlagged[bucket] = time;
+        flagged++;
+
+        alert(player, material, recent, mean[ordinal]);
+    }
+
+    private static void alert(UUID player, Material material, double recent, double usual) {
+        String name = Bukkit.getOfflinePlayer(player).getName();
+        String details = (name == null ? player.toString() : name) + " sold about " + Math.round(recent) + " "
+                + material.name().toLowerCase(Locale.ROOT).replace("_", " ") + " recently, sellers usually sell "
+                + Math.round(usual) + " (" + flagged + " flagged since startup)";
+
+        Bukkit.getLogger().warning(ConsoleString.TRADE_ANOMALY.getMessage() + details);
+
+        String message = new StringFactory()
+                .append("[Server]").setColor('a')
+                .append("Global shop:").setColor('e')
+                .append(ConsoleString.TRADE_ANOMALY.getMessage()).setColor('c')
+                .append(details).setColor('f')
+                .get();
+        for (Player online : Bukkit.getOnlinePlayers()) {
+            if (online.hasPermission("anomaly-alerts")) online.sendMessage(message);
+        }
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many sells have been flagged since the plugin was enabled
+     */
+    public static long getFlagged() {
+        return flagged;
+    }
+
+    private static long hash(long most, long least, int material) {
+        return mix(most ^ Long.rotateLeft(least, 29) ^ (material * 0x9E3779B97F4A7C15L));
+    }
+
+    /// The finalizer of SplitMix64
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * A Count-Min sketch whose counts halve every half life. It uses forward decay: every amount is
+     * added multiplied by how many half lives passed since a landmark time, and estimates are divided back,
+     * so no cell has to be touched when time passes. The cells are rescaled when the multiplier grows too large
+     */
+    private static final class DecayingSketch {
+        /// Beyond this multiplier the cells are rescaled, far before doubles lose precision
+        private static final double MAX_SCALE = 1e12;
+
+        private final int width;
+        private final double[][] cells;
+        private final double lambda;
+        private long landmark = Long.MIN_VALUE;
+
+        DecayingSketch(int depth, int width, long halfLife) {
+            this.width = width;
+            this.cells = new double[depth][width];
+            this.lambda = Math.log(2) / halfLife;
+        }
+
+        /**
+         * Adds an amount to a key
+         *
+         * @return The estimate of the key after the amount has been added
+         */
+        double add(long key, long amount, long time) {
+            double scale = this.scale(time);
+            double value = Double.MAX_VALUE;
+            for (int row = 0; row < cells.length; row++) {
+                int column = this.column(key, row);
+                cells[row][column] += amount * scale;
+                value = Math.min(value, cells[row][column]);
+            }
+            return value / scale;
+        }
+
+        double estimate(long key, long time) {
+            double scale = this.scale(time);
+            double value = Double.MAX_VALUE;
+            for (int row = 0; row < cells.length; row++) {
+                value = Math.min(value, cells[row][this.column(key, row)]);
+            }
+            return value / scale;
+        }
+
+        private double scale(long time) {
+            if (landmark == Long.MIN_VALUE) landmark = time;
+            double scale = Math.exp(lambda * (time - landmark));
+            if (scale <= MAX_SCALE) return scale;
+
+            for (double[] row : cells) {
+                for (int i = 0; i < row.length; i++) row[i] /= scale;
+            }
+            landmark = time;
+            return 1;
+        }
+
+        private int column(long key, int row) {
+            return (int) ((mix(key + row * 0x632BE59BD9B4E019L) >>> 1) % width);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.CandleResolution;
+
+/**
+ * The open, high, low and close price of one item, and the amount of items traded, during
+ * one period of a CandleResolution. Prices are the average price of one item in each trade.
+ * Candles are immutable copies, created by CandleSeries queries.
+ */
+public final class Candle {
+    private final CandleResolution resolution;
+    private final long start;
+    /// Prices, in cents. See Money
+    private final long open;
+    private final long high;
+    private final long low;
+    private final long close;
+    private final long volume;
+
+    Candle(CandleResolution resolution, long start, long open, long high, long low, long close, long volume) {
+        this.resolution = resolution;
+        this.start = start;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    public CandleResolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The time this candle starts at, in milliseconds
+     */
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return start + resolution.getMillis();
+    }
+
+    public Money getOpen() {
+        return Money.ofCents(open);
+    }
+
+    public Money getHigh() {
+        return Money.ofCents(high);
+    }
+
+    public Money getLow() {
+        return Money.ofCents(low);
+    }
+
+    public Money getClose() {
+        return Money.ofCents(close);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The amount of items traded during this candle
+     */
+    public long getVolume() {
+        return volume;
+    }
+}
@@ -0,0 +1,291 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.CandleResolution;
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Material;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The OHLC candles of one Material at one CandleResolution. Candles are stored in a preallocated
+ * ring of parallel primitive arrays, so updating them on a trade costs constant time and allocates
+ * nothing, and the newest CandleResolution#getCapacity() candles are kept.
+ * Periods without trades have no candle.
+ * <p>
+ * The series of every Material and resolution are reachable with the static get() method, which is
+ * the query API that GUIs and other parts of the plugin use. Series must only be used on the main thread,
+ * with one exception: while the plugin is being enabled, JournalReplay updates them from its own threads, one
+ * thread for each Material, so no two threads ever touch the series of the same Material. Those threads only
+ * read the GlobalShopItems and the MarketState, which don't change during replay, and are joined before the
+ * main thread reads the series again.
+ */
+public class CandleSeries {
+    private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+    /// The series of every Material, by ordinal and by resolution ordinal. They are created on the first trade
+    private static final CandleSeries[][] series = new CandleSeries[Material.values().length][];
+
+    private final CandleResolution resolution;
+    private final long[] start;
+    /// Prices, in cents. See Money
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+
+    /// The index of the newest candle
+    private int head = -1;
+    private int size = 0;
+
+    /**
+     * Creates an empty CandleSeries
+     *
+     * @param resolution The resolution of the candles of this series
+     */
+    public CandleSeries(CandleResolution resolution) {
+        this(resolution, resolution.getCapacity());
+    }
+
+    private CandleSeries(CandleResolution resolution, int capacity) {
+        this.resolution = resolution;
+        this.start = new long[capacity];
+        this.open = new long[capacity];
+        this.high = new long[capacity];
+        this.low = new long[capacity];
+        this.close = new long[capacity];
+        this.volume = new long[capacity];
+    }
+
+    /**
+     * Adds a trade to the candle of its period, starting a new candle if the period has changed
+     *
+     * @param time   The time of the trade, in milliseconds
+     * @param price  The price of one item, in cents
+     * @param amount The amount of items traded
+     */
+    public void update(long time, long price, long amount) {
+        long period = time - Math.floorMod(time, resolution.getMillis());
+
+        if (size > 0 && period <= start[head]) {
+            /// Trades are recorded in order, so an older period can only be the current one
+            high[head] = Math.max(high[head], price);
+            low[head] = Math.min(low[head], price);
+            close[head] = price;
+            volume[head] += amount;
+            return;
+        }
+
+        head = (head + 1) % start.length;
+        if (size < start.length) size++;
+        start[head] = period;
+        open[head] = price;
+        high[head] = price;
+        low[head] = price;
+        close[head] = price;
+        volume[head] = amount;
+    }
+
+    /// Converts an index from the oldest candle to a position in the arrays
+    private int slot(int i) {
+        return (head - size + 1 + i + start.length) % start.length;
+    }
+
+    private Candle getCandle(int i) {
+        int slot = slot(i);
+        return new Candle(resolution, start[slot], open[slot], high[slot], low[slot], close[slot], volume[slot]);
+    }
+
+    /**
+     * Gets the candles that start in the specified range
+     *
+     * @param from The start of the range, in milliseconds, included
+     * @param to   The end of the range, in milliseconds, excluded
+     * @return The candles, oldest first
+     */
+    public List<Candle> getCandles(long from, long to) {
+        List<Candle> value = new ArrayList<>();
+        /// Candles are sorted by start, so the first one in range is searched
+        int low = 0, high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (start[slot(mid)] < from) low = mid + 1;
+            else high = mid;
+        }
+
+        for (int i = low; i < size && start[slot(i)] < to; i++) {
+            value.add(getCandle(i));
+        }
+        return value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The newest candle, or null if there are none
+     */
+    @Nullable
+    public Candle getLatest() {
+        return size == 0 ? null : getCandle(size - 1);
+    }
+
+    public CandleResolution getResolution() {
+        return resolution;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies this series, so that it can be written by another thread while this one keeps changing.
+     * Only the candles that are stored are copied, oldest first, so the copy is as big as they are
+     * and not as the capacity of the resolution
+     *
+     * @return A new CandleSeries with the same candles, and a capacity equal to their amount
+     */
+    public CandleSeries copy() {
+        CandleSeries value = new CandleSeries(resolution, Math.max(1, size));
+        int oldest = size == 0 ? 0 : slot(0);
+        /// The candles wrap around the end of the arrays at most once
+        int first = Math.min(size, start.length - oldest);
+        copyRange(value, oldest, 0, first);
+        copyRange(value, 0, first, size - first);
+
+        value.head = size - 1;
+        value.size = size;
+        return value;
+    }
+
+    private void copyRange(CandleSeries value, int from, int to, int length) {
+        System.arraycopy(start, from, value.start, to, length);
+        System.arraycopy(open, from, value.open, to, length);
+        System.arraycopy(high, from, value.high, to, length);
+        System.arraycopy(low, from, value.low, to, length);
+        System.arraycopy(close, from, value.close, to, length);
+        System.arraycopy(volume, from, value.volume, to, length);
+    }
+
+    /**
+     * Writes the candles of this series, oldest first. See read()
+     *
+     * @param out Where to write them
+     * @throws IOException If they can't be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            out.writeLong(start[slot]);
+            out.writeLong(open[slot]);
+            out.writeLong(high[slot]);
+            out.writeLong(low[slot]);
+            out.writeLong(close[slot]);
+            out.writeLong(volume[slot]);
+        }
+    }
+
+    /**
+     * Reads a series written by write(). If it has more candles than the capacity of
+     * the resolution, only the newest ones are kept
+     *
+     * @param in         Where to read it from
+     * @param resolution The resolution of the series
+     * @return The series
+     * @throws IOException If it can't be read
+     */
+    public static CandleSeries read(DataInput in, CandleResolution resolution) throws IOException {
+        CandleSeries value = new CandleSeries(resolution);
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            value.head = (value.head + 1) % value.start.length;
+            if (value.size < value.start.length) value.size++;
+            value.start[value.head] = in.readLong();
+            value.open[value.head] = in.readLong();
+            value.high[value.head] = in.readLong();
+            value.low[value.head] = in.readLong();
+            value.close[value.head] = in.readLong();
+            value.volume[value.head] = in.readLong();
+        }
+        return value;
+    }
+
+    /**
+     * Gets the series of every resolution of a Material, to restore them later with set()
+     *
+     * @param material The ordinal of the Material
+     * @return The series, by resolution ordinal, or null if the Material was never traded
+     */
+    @Nullable
+    static CandleSeries[] get(int material) {
+        return series[material];
+    }
+
+    /**
+     * Replaces the series of every resolution of a Material
+     *
+     * @param material The ordinal of the Material
+     * @param value    The series, by resolution ordinal
+     */
+    static void set(int material, CandleSeries[] value) {
+        series[material] = value;
+    }
+
+    /**
+     * Updates the candles of every resolution of a Material with a trade. Every trade is recorded at one
+     * reference price, so that the candles don't jump by the buy margin whenever buys and sells alternate:
+     * trades with the market are recorded at the sell price of their items, without the margin, and trades
+     * between two orders at the price they agreed on. Player shops and the sell side of trades between two
+     * orders are not recorded
+     *
+     * @param kind       The kind of trade
+     * @param material   The Material traded
+     * @param time       The time of the trade, in milliseconds
+     * @param price      The price of the whole trade, in cents
+     * @param amount     The amount of items traded
+     * @param stockAfter The amount of items on the market after the trade
+     */
+    static void record(TradeKind kind, Material material, long time, long price, long amount, long stockAfter) {
+        if (amount <= 0) return;
+
+        long unitPrice;
+        switch (kind) {
+            case GLOBAL_BUY, GLOBAL_SELL, ORDER_BUY, ORDER_SELL -> {
+                GlobalShopItem item = GlobalShop.getItem(material);
+                unitPrice = item == null
+                        ? Math.round((double) price / amount)
+                        : item.getReferencePrice(kind.isBuy(), amount, stockAfter);
+            }
+            case MATCH_BUY -> unitPrice = Math.round((double) price / amount);
+            default -> {
+                return;
+            }
+        }
+
+        CandleSeries[] value = series[material.ordinal()];
+        if (value == null) {
+            value = new CandleSeries[RESOLUTIONS.length];
+            for (int i = 0; i < RESOLUTIONS.length; i++) value[i] = new CandleSeries(RESOLUTIONS[i]);
+            series[material.ordinal()] = value;
+        }
+
+        for (CandleSeries candles : value) candles.update(time, unitPrice, amount);
+    }
+
+    /**
+     * Gets the candles of a Material at a resolution
+     *
+     * @param material   The Material to get the candles of
+     * @param resolution The resolution of the candles
+     * @return The CandleSeries, or null if the Material was never traded
+     */
+    @Nullable
+    public static CandleSeries get(Material material, CandleResolution resolution) {
+        CandleSeries[] value = series[material.ordinal()];
+        return value == null ? null : value[resolution.ordinal()];
+    }
+}
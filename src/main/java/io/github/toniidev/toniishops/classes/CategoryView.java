@@ -0,0 +1,325 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.ShopItemType;
+import io.github.toniidev.toniishops.enums.ShopSortOrder;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The items of one Global Shop category, sorted in one ShopSortOrder. The views of a category are sorted once,
+ * the first time it is opened, and are then kept sorted incrementally: when an item gets traded or repriced,
+ * only that item is moved, by binary searching its new position and shifting the items in between.
+ * This way opening a category, or switching its order, never sorts it again.
+ * <p>
+ * The key of every item is cached in the view, so the binary search never computes a price. Prices are read
+ * again only when the market version of the item changes: on its trades, with update(), and after the
+ * market tick, with refresh(). The recent volume of a Material is a forward-decayed sum of the items traded:
+ * every sum decays at the same rate, so the order of two items only changes when one of them is traded.
+ * Views must only be used on the main thread.
+ */
+public class CategoryView {
+    /**
+     * How long it takes for a trade to count half as much in the recent volume of its Material, in milliseconds
+     */
+    public static final long VOLUME_HALF_LIFE = 3_600_000L;
+    /// When new trades would weigh more than this, every volume is scaled back, or they would overflow
+    private static final double MAX_WEIGHT = 0x1p40;
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final ShopSortOrder[] ORDERS = ShopSortOrder.values();
+
+    /// The position of every Material in alphabetical order, by ordinal. It also breaks the ties of the other orders
+    private static final int[] nameRank = new int[MATERIALS.length];
+    /// The views of every category, by ShopItemType ordinal and ShopSortOrder ordinal. They are built on first use
+    private static final CategoryView[][] views = new CategoryView[ShopItemType.values().length][];
+    /// The market version of every Material when its prices were last read, by ordinal
+    private static final long[] versions = new long[MATERIALS.length];
+    /// The recent volume of every Material, by ordinal, weighted from the landmark
+    private static final double[] volume = new double[MATERIALS.length];
+    private static long landmark = System.currentTimeMillis();
+
+    static {
+        Material[] sorted = MATERIALS.clone();
+        Arrays.sort(sorted, Comparator.comparing(Material::name));
+        for (int i = 0; i < sorted.length; i++) nameRank[sorted[i].ordinal()] = i;
+    }
+
+    private final ShopSortOrder order;
+    private GlobalShopItem[] items;
+    /// The key of the item at each position, ascending. See key()
+    private double[] keys;
+    private int size;
+    /// The position of every Material in this view, by ordinal, or -1 if it is not in it
+    private final int[] position = new int[MATERIALS.length];
+
+    private CategoryView(ShopSortOrder order, List<GlobalShopItem> content) {
+        this.order = order;
+        this.size = content.size();
+        this.items = content.toArray(new GlobalShopItem[Math.max(16, size)]);
+        this.keys = new double[items.length];
+
+        for (int i = 0; i < size; i++) keys[i] = this.key(items[i]);
+        /// Sort the positions by key, then move the items and keys to them
+        Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++) sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> compare(keys[a], rank(items[a]), keys[b], rank(items[b])));
+
+        GlobalShopItem[] sortedItems = new GlobalShopItem[items.length];
+        double[] sortedKeys = new double[items.length];
+        for (int i = 0; i < size; i++) {
+            sortedItems[i] = items[sorted[i]];
+            sortedKeys[i] = keys[sorted[i]];
+        }
+        items = sortedItems;
+        keys = sortedKeys;
+
+        Arrays.fill(position, -1);
+        for (int i = 0; i < size; i++) position[items[i].getMaterial().ordinal()] = i;
+    }
+
+    private static int rank(GlobalShopItem item) {
+        return nameRank[item.getMaterial().ordinal()];
+    }
+
+    /// Orders by key, then by name. Plain comparisons are used, so that -0.0 and 0.0 are the same key
+    private static int compare(double key, int rank, double otherKey, int otherRank) {
+        if (key < otherKey) return -1;
+        if (key > otherKey) return 1;
+        return Integer.compare(rank, otherRank);
+    }
+
+    /// The value this view sorts an item by, ascending. Orders that show the highest values first negate them
+    private double key(GlobalShopItem item) {
+        return switch (order) {
+            case NAME -> rank(item);
+            case BUY_PRICE -> item.getBuyPrice().getCents();
+            case SELL_PRICE -> -item.getSellPrice().getCents();
+            case VOLUME -> -volume[item.getMaterial().ordinal()];
+        };
+    }
+
+    /// Gets the first position between from and to whose item comes after the specified key and rank
+    private int search(double key, int rank, int from, int to) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (compare(keys[mid], rank(items[mid]), key, rank) < 0) from = mid + 1;
+            else to = mid;
+        }
+        return from;
+    }
+
+    private void insert(GlobalShopItem item) {
+        int ordinal = item.getMaterial().ordinal();
+        if (position[ordinal] != -1) return;
+
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+
+        double key = this.key(item);
+        int at = this.search(key, rank(item), 0, size);
+        System.arraycopy(items, at, items, at + 1, size - at);
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        items[at] = item;
+        keys[at] = key;
+        size++;
+
+        for (int i = at; i < size; i++) position[items[i].getMaterial().ordinal()] = i;
+    }
+
+    private void delete(GlobalShopItem item) {
+        int ordinal = item.getMaterial().ordinal();
+        int at = position[ordinal];
+        if (at == -1) return;
+
+        System.arraycopy(items, at + 1, items, at, size - at - 1);
+        System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+        size--;
+        items[size] = null;
+        position[ordinal] = -1;
+
+        for (int i = at; i < size; i++) position[items[i].getMaterial().ordinal()] = i;
+    }
+
+    /// Moves an item whose key may have changed to its new position, shifting only the items it passes
+    private void reposition(GlobalShopItem item) {
+        int from = position[item.getMaterial().ordinal()];
+        if (from == -1) return;
+
+        double key = this.key(item);
+        int rank = rank(item);
+        int to;
+
+        if (from + 1 < size && compare(key, rank, keys[from + 1], rank(items[from + 1])) > 0) {
+            to = this.search(key, rank, from + 1, size) - 1;
+            System.arraycopy(items, from + 1, items, from, to - from);
+            System.arraycopy(keys, from + 1, keys, from, to - from);
+        } else if (from > 0 && compare(key, rank, keys[from - 1], rank(items[from - 1])) < 0) {
+            to = this.search(key, rank, 0, from);
+            System.arraycopy(items, to, items, to + 1, from - to);
+            System.arraycopy(keys, to, keys, to + 1, from - to);
+        } else {
+            keys[from] = key;
+            return;
+        }
+
+        items[to] = item;
+        keys[to] = key;
+        for (int i = Math.min(from, to); i <= Math.max(from, to); i++) position[items[i].getMaterial().ordinal()] = i;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The order the items of this view are sorted in
+     */
+    public ShopSortOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many items this view has
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the items of this view, so that the pages of a GUI stay consistent while the view keeps changing
+     *
+     * @return The items of this view, in its order
+     */
+    public GlobalShopItem[] getItems() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     * Gets the items of a category in an order, sorting every order of the category if it was never opened
+     *
+     * @param type  The category
+     * @param order The order
+     * @return The view of the category in that order
+     */
+    public static CategoryView get(ShopItemType type, ShopSortOrder order) {
+        CategoryView[] value = views[type.ordinal()];
+        if (value == null) {
+            List<GlobalShopItem> content = new ArrayList<>();
+            for (GlobalShopItem item : GlobalShop.shop) {
+                if (item.getShopItemType() == type && GlobalShop.canSell(item.getMaterial())) {
+                    versions[item.getMaterial().ordinal()] = item.getMarketVersion();
+                    content.add(item);
+                }
+            }
+
+            value = new CategoryView[ORDERS.length];
+            for (ShopSortOrder current : ORDERS) value[current.ordinal()] = new CategoryView(current, content);
+            views[type.ordinal()] = value;
+        }
+        return value[order.ordinal()];
+    }
+
+    /**
+     * Adds an item to the views of its category, if it is sold and they were built
+     *
+     * @param item The item
+     */
+    static void add(GlobalShopItem item) {
+        CategoryView[] value = views[item.getShopItemType().ordinal()];
+        if (value == null || !GlobalShop.canSell(item.getMaterial())) return;
+
+        versions[item.getMaterial().ordinal()] = item.getMarketVersion();
+        for (CategoryView view : value) view.insert(item);
+    }
+
+    /**
+     * Removes an item from the views of its category, when it is not sold anymore
+     *
+     * @param item The item
+     */
+    static void remove(GlobalShopItem item) {
+        CategoryView[] value = views[item.getShopItemType().ordinal()];
+        if (value == null) return;
+
+        for (CategoryView view : value) view.delete(item);
+    }
+
+    /**
+     * Moves an item from the views of its previous category to the ones of its current category
+     *
+     * @param item The item
+     * @param from The ShopItemType the item had before
+     */
+    static void move(GlobalShopItem item, ShopItemType from) {
+        CategoryView[] value = views[from.ordinal()];
+        if (value != null) {
+            for (CategoryView view : value) view.delete(item);
+        }
+        CategoryView.add(item);
+    }
+
+    /**
+     * Moves an item in the price orders of its category, if its market version changed since its prices were read
+     *
+     * @param item The item
+     */
+    static void update(GlobalShopItem item) {
+        CategoryView[] value = views[item.getShopItemType().ordinal()];
+        int ordinal = item.getMaterial().ordinal();
+        if (value == null || versions[ordinal] == item.getMarketVersion()) return;
+
+        versions[ordinal] = item.getMarketVersion();
+        value[ShopSortOrder.BUY_PRICE.ordinal()].reposition(item);
+        value[ShopSortOrder.SELL_PRICE.ordinal()].reposition(item);
+    }
+
+    /**
+     * Moves the items the market tick restocked or drained in the price orders of their categories.
+     * Only the items whose market version changed are moved
+     */
+    public static void refresh() {
+        for (CategoryView[] value : views) {
+            if (value == null) continue;
+
+            /// The name order never changes on updates, so it can be walked while the other orders change
+            CategoryView names = value[ShopSortOrder.NAME.ordinal()];
+            for (int i = 0; i < names.size; i++) CategoryView.update(names.items[i]);
+        }
+    }
+
+    /**
+     * Adds a trade to the recent volume of its Material and moves it in the volume order of its category.
+     * Trades don't have to be recorded in order, so the journal can be replayed one Material at a time
+     *
+     * @param material The ordinal of the Material traded
+     * @param amount   The amount of items traded
+     * @param time     The time of the trade, in milliseconds
+     */
+    static void recordVolume(int material, long amount, long time) {
+        double weight = Math.pow(2, (double) (time - landmark) / VOLUME_HALF_LIFE);
+        if (weight > MAX_WEIGHT) {
+            /// Scaling every volume by the same factor keeps their order, so the views only have their keys scaled
+            double factor = 1 / weight;
+            for (int i = 0; i < volume.length; i++) volume[i] *= factor;
+            for (CategoryView[] value : views) {
+                if (value == null) continue;
+                CategoryView view = value[ShopSortOrder.VOLUME.ordinal()];
+                for (int i = 0; i < view.size; i++) view.keys[i] *= factor;
+            }
+            landmark = time;
+            weight = 1;
+        }
+        volume[material] += amount * weight;
+
+        GlobalShopItem item = GlobalShop.getItem(MATERIALS[material]);
+        if (item == null) return;
+        CategoryView[] value = views[item.getShopItemType().ordinal()];
+        if (value != null) value[ShopSortOrder.VOLUME.ordinal()].reposition(item);
+    }
+}
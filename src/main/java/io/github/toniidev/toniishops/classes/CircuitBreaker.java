@@ -0,0 +1,158 @@
+package io.github.toniidev.toniishops.classes;
+
+/**
+ * Halts trading on a GlobalShopItem when its price moves too much in a short time, like when a bot
+ * or a dupe exploit dumps items on the market, and resumes it automatically after HALT_MILLIS.
+ * Prices only depend on the amount on the market, so with few items on the market even a single
+ * ordinary trade of a couple of stacks moves them a lot: the move only halts trading when at least
+ * MIN_VOLUME items were traded in the window too.
+ * The price and the traded volume of the last WINDOW_SECONDS are kept in ring buffers of per-second
+ * buckets, so recording a trade costs constant time however much the item is traded, and checking
+ * whether trading is halted is a single comparison.
+ */
+public class CircuitBreaker {
+    /// How many seconds the price move is measured over
+    public static final int WINDOW_SECONDS = 60;
+    /// The relative price move in WINDOW_SECONDS that halts trading (0.25 = 25%)
+    public static final double MAX_MOVE = 0.25;
+    /// The amount of items that must be traded in WINDOW_SECONDS for a price move to halt trading: more than
+    /// what a player trades at once without emptying his inventory
+    public static final long MIN_VOLUME = 8 * 64;
+    /// How long trading stays halted
+    public static final long HALT_MILLIS = 5 * 60 * 1000;
+
+    /// The price (in cents) at the start of each second, and the volume traded during it.
+    /// The bucket of a second is at index second % WINDOW_SECONDS
+    private final long[] openPrice = new long[WINDOW_SECONDS];
+    private final long[] volume = new long[WINDOW_SECONDS];
+    private long currentSecond = -1;
+    private long lastPrice;
+    private long windowVolume = 0;
+
+    private long haltedUntil = 0;
+    private long halts = 0;
+
+    /**
+     * Creates a CircuitBreaker for an item that was never traded
+     *
+     * @param price The current price of the item
+     */
+    public CircuitBreaker(Money price) {
+        this.lastPrice = price.getCents();
+    }
+
+    /**
+     * Tells whether trading is halted
+     *
+     * @param now The current time, in milliseconds
+     * @return true if the item can't be traded right now
+     */
+    public boolean isHalted(long now) {
+        return now < haltedUntil;
+    }
+
+    /**
+     * Updates the window with a trade and halts trading if the price moved more than MAX_MOVE
+     * since the start of the window, with at least MIN_VOLUME items traded in it
+     *
+     * @param amount The amount of items traded
+     * @param price  The price of the item after the trade
+     * @param now    The time of the trade, in milliseconds
+     * @return true if this trade has halted trading
+     */
+    public boolean record(long amount, Money price, long now) {
+        this.advance(now / 1000);
+        volume[(int) (currentSecond % WINDOW_SECONDS)] += amount;
+        windowVolume += amount;
+        lastPrice = price.getCents();
+
+        /// The bucket after the current one is the oldest second of the window
+        long reference = openPrice[(int) ((currentSecond + 1) % WINDOW_SECONDS)];
+        if (reference <= 0 || windowVolume < MIN_VOLUME || Math.abs(lastPrice - reference) <= reference * MAX_MOVE) return false;
+
+        haltedUntil = now + HALT_MILLIS;
+        halts++;
+        /// The window starts again from the current price, so that trading doesn't halt again as soon as it resumes
+        this.reset(currentSecond);
+        return true;
+    }
+
+    /**
+     * Starts measuring the price move again from a new price, when the price changes without a trade
+     * (like when the base price of the item is changed), so that the change itself doesn't halt trading
+     *
+     * @param price The new price of the item
+     * @param now   The current time, in milliseconds
+     */
+    public void rebase(Money price, long now) {
+        lastPrice = price.getCents();
+        this.reset(now / 1000);
+    }
+
+    /**
+     * Moves every price of the window by the same amount, when the price changes without a trade but the trades
+     * in the window still count (like when the market tick restocks the item), so that the change itself doesn't
+     * halt trading, and a crash that spans it still does
+     *
+     * @param delta How much the price changed, in cents
+     */
+    public void shift(long delta) {
+        lastPrice = Math.max(1, lastPrice + delta);
+        for (int i = 0; i < WINDOW_SECONDS; i++) openPrice[i] = Math.max(1, openPrice[i] + delta);
+    }
+
+    /**
+     * Moves the window to the specified second. The seconds without trades get the last price as their
+     * price, so at most WINDOW_SECONDS buckets are written, however long the item wasn't traded
+     */
+    private void advance(long second) {
+        if (currentSecond == -1 || second - currentSecond >= WINDOW_SECONDS) {
+            this.reset(second);
+            return;
+        }
+
+        while (currentSecond < second) {
+            currentSecond++;
+            int i = (int) (currentSecond % WINDOW_SECONDS);
+            windowVolume -= volume[i];
+            volume[i] = 0;
+            openPrice[i] = lastPrice;
+        }
+    }
+
+    private void reset(long second) {
+        for (int i = 0; i < WINDOW_SECONDS; i++) {
+            openPrice[i] = lastPrice;
+            volume[i] = 0;
+        }
+        windowVolume = 0;
+        currentSecond = second;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The amount of items traded in the last WINDOW_SECONDS, as of the last trade
+     */
+    public long getWindowVolume() {
+        return windowVolume;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The time trading resumes at, in milliseconds. It is in the past if trading is not halted
+     */
+    public long getHaltedUntil() {
+        return haltedUntil;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many times trading has been halted since the server started
+     */
+    public long getHalts() {
+        return halts;
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.extendable.TabulatedPricingCurve;
+
+/**
+ * Constant-product market maker curve. The Global Shop behaves like a pool that holds
+ * (n + reserve) items and money, whose product never changes: the marginal price of one
+ * item is then basePrice * (reserve / (n + reserve))^2.
+ */
+public class ConstantProductPricingCurve extends TabulatedPricingCurve {
+    private final double reserve;
+
+    /**
+     * Creates a constant-product PricingCurve
+     *
+     * @param reserve   The virtual amount of items the pool holds on top of the real ones. Higher values make the curve flatter
+     * @param buyMargin The value the sell price is multiplied by to get the buy price
+     */
+    public ConstantProductPricingCurve(double reserve, double buyMargin) {
+        super(buyMargin);
+        this.reserve = reserve;
+    }
+
+    @Override
+    protected double computeFactor(long amountOnTheMarket) {
+        double ratio = reserve / (amountOnTheMarket + reserve);
+        return ratio * ratio;
+    }
+}
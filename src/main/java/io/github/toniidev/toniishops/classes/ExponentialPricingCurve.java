@@ -0,0 +1,33 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.extendable.TabulatedPricingCurve;
+
+/**
+ * Exponential decay curve: basePrice * e^(-n / decay).
+ * The price keeps falling by the same percentage for every item added to the market.
+ */
+public class ExponentialPricingCurve extends TabulatedPricingCurve {
+    private final double decay;
+
+    /**
+     * Creates an exponential decay PricingCurve
+     *
+     * @param decay     The amount of items that makes the price fall to 1/e of its value
+     * @param buyMargin The value the sell price is multiplied by to get the buy price
+     */
+    public ExponentialPricingCurve(double decay, double buyMargin) {
+        super(buyMargin);
+        this.decay = decay;
+    }
+
+    @Override
+    protected double computeFactor(long amountOnTheMarket) {
+        return Math.exp(-amountOnTheMarket / decay);
+    }
+
+    @Override
+    protected double computeFactorSum(long fromAmount, long count) {
+        /// Geometric series with ratio r = e^(-1 / decay): r^from * (1 - r^count) / (1 - r)
+        return Math.exp(-fromAmount / decay) * Math.expm1(-count / decay) / Math.expm1(-1 / decay);
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.toniidev.toniishops.classes;
 
 import io.github.toniidev.toniishops.enums.ShopItemType;
+import io.github.toniidev.toniishops.enums.ShopSortOrder;
 import io.github.toniidev.toniishops.factories.InventoryFactory;
 import io.github.toniidev.toniishops.factories.ItemStackFactory;
 import io.github.toniidev.toniishops.factories.MultipleInventoryFactory;
@@ -20,25 +21,50 @@ import java.util.*;
  * WARNING: This class contains some strings that aren't stored in any separate enum!
  */
 public class GlobalShop {
+    private static final Material[] MATERIALS = Material.values();
+    private static final ShopItemType[] SHOP_ITEM_TYPES = ShopItemType.values();
+
+    /// The classification of every Material, by ordinal: the ShopItemType ordinal it is sold as, or -1 if it
+    /// can't be sold, and its base price in cents. See classifyMaterials()
+    private static final byte[] materialTypes = new byte[MATERIALS.length];
+    private static final long[] materialPrices = new long[MATERIALS.length];
+    private static boolean classified = false;
+    /// The amount of items new GlobalShopItems start with. Set by initializeShop()
+    private static long initialAmount = 0;
+    private static boolean initialized = false;
+
+    /// The items of the shop, by Material#ordinal(). This is what getItem() looks up
+    private static final GlobalShopItem[] items = new GlobalShopItem[MATERIALS.length];
+    /// The items of the shop, in the order they were added
+    private static final List<GlobalShopItem> catalog = new ArrayList<>();
+
     /**
-     * Items of this list are loaded onEnable and
-     * are saved onDisable
-     * TODO: Save and load this list's items
+     * A read-only view of the items of the shop, in the order they were added.
+     * Items are added with add(), which also indexes them by Material
      */
-    public static List<GlobalShopItem> shop = new ArrayList<>();
-
-    public static final Map<String, Double> ORE_PRICES = Map.of(
-            "coal", 30.0,
-            "iron", 50.0,
-            "gold", 40.0,
-            "redstone", 70.0,
-            "lapis", 60.0,
-            "diamond", 500.0,
-            "emerald", 1000.0,
-            "netherite", 1500.0
+    public static final List<GlobalShopItem> shop = Collections.unmodifiableList(catalog);
+
+    /**
+     * The highest amount on the market for which the PricingCurve of every ShopItemType
+     * precomputes its prices. Quotes outside this range fall back to the curve formulas
+     */
+    public static final int PRICING_TABLE_SIZE = 8192;
+
+    /// The slot of the sort button in every page of a category Inventory, below the page compass
+    private static final int SORT_SLOT = 18;
+
+    public static final Map<String, Double> ORE_PRICES = orderedMap(
+            Map.entry("coal", 30.0),
+            Map.entry("iron", 50.0),
+            Map.entry("gold", 40.0),
+            Map.entry("redstone", 70.0),
+            Map.entry("lapis", 60.0),
+            Map.entry("diamond", 500.0),
+            Map.entry("emerald", 1000.0),
+            Map.entry("netherite", 1500.0)
     );
 
-    public static final Map<String, Double> DECORATION_PRICES = Map.ofEntries(
+    public static final Map<String, Double> DECORATION_PRICES = orderedMap(
             Map.entry("pot", 30.0),
             Map.entry("flower", 10.0),
             Map.entry("banner", 50.0),
@@ -58,7 +84,7 @@ public class GlobalShop {
             Map.entry("water", 20.0)
     );
 
-    public static final Map<String, Double> BLOCK_PRICES = Map.ofEntries(
+    public static final Map<String, Double> BLOCK_PRICES = orderedMap(
             Map.entry("quartz", 500.0),
             Map.entry("stairs", 250.0),
             Map.entry("smooth", 200.0),
@@ -78,7 +104,7 @@ public class GlobalShop {
             Map.entry("bricks", 50.0)
     );
 
-    public static final Map<String, Double> FOOD_PRICES = Map.ofEntries(
+    public static final Map<String, Double> FOOD_PRICES = orderedMap(
             Map.entry("bread", 20.0),
             Map.entry("golden", 100.0),
             Map.entry("apple", 10.0),
@@ -98,7 +124,7 @@ public class GlobalShop {
             Map.entry("berries", 15.0)
     );
 
-    public static final Map<String, Double> ITEM_PRICES = Map.ofEntries(
+    public static final Map<String, Double> ITEM_PRICES = orderedMap(
             Map.entry("stick", 5.0),
             Map.entry("paper", 10.0),
             Map.entry("book", 15.0),
@@ -209,9 +235,23 @@ public class GlobalShop {
      */
     @Nullable
     public static GlobalShopItem getItem(Material material) {
-        return GlobalShop.shop.stream()
-                .filter(x -> x.getMaterial().equals(material))
-                .findFirst().orElse(null);
+        return items[material.ordinal()];
+    }
+
+    /**
+     * Adds an item to the shop. If the shop already sells its Material, nothing happens
+     *
+     * @param item The GlobalShopItem to add
+     * @return true if the item was added, false if its Material was already sold
+     */
+    public static boolean add(GlobalShopItem item) {
+        int i = item.getMaterial().ordinal();
+        if (items[i] != null) return false;
+
+        items[i] = item;
+        catalog.add(item);
+        CategoryView.add(item);
+        return true;
     }
 
     /**
@@ -224,15 +264,19 @@ public class GlobalShop {
     public static void initializeShop(long amountOfItemsOfEachMaterialToAdd) {
         int i = 0;
 
-        for (Material material : Material.values()) {
+        for (ShopItemType type : ShopItemType.values()) {
+            type.getPricingCurve().precompute(PRICING_TABLE_SIZE);
+        }
+
+        if (!classified) GlobalShop.classifyMaterials();
+        initialAmount = amountOfItemsOfEachMaterialToAdd;
+
+        for (Material material : MATERIALS) {
             if (!GlobalShop.contains(material)) {
                 if (canSell(material)) {
-                    AbstractMap.SimpleEntry<ShopItemType, Double> info = getMaterialInfo(material);
-                    assert info != null;
-
-                    GlobalShopItem item = new GlobalShopItem(material, info.getValue(), amountOfItemsOfEachMaterialToAdd,
-                            info.getKey());
-                    GlobalShop.shop.add(item);
+                    GlobalShopItem item = new GlobalShopItem(material, getBasePrice(material), amountOfItemsOfEachMaterialToAdd,
+                            getMaterialType(material));
+                    GlobalShop.add(item);
                     Bukkit.getLogger().info("Successfully added " + amountOfItemsOfEachMaterialToAdd + " items of " + material +
                             " to the global shop. Item type: " + item.getShopItemType());
                     i++;
@@ -241,6 +285,93 @@ public class GlobalShop {
         }
 
         Bukkit.getLogger().info("Added " + i + " items to the global shop.");
+        initialized = true;
+    }
+
+    /**
+     * Replaces the classification of the Materials with the one of the catalog file, touching only the
+     * Materials whose ShopItemType or base price changed. Their GlobalShopItems are updated in place, so
+     * the amount on the market, the history and the orders are kept. Materials that are not sold anymore
+     * keep their GlobalShopItem, but canSell() returns false for them, so they can't be traded and
+     * they are not shown, until they are sold again: their Orders are cancelled and their Quotes released. Before the shop is initialized, only the classification changes
+     *
+     * @param types  The ShopItemType ordinal of each Material, by Material ordinal: -1 if it is not sold, -2 to keep it as it is
+     * @param prices The base price of each Material, in cents, by Material ordinal
+     */
+    public static void applyCatalog(byte[] types, long[] prices) {
+        if (!classified) GlobalShop.classifyMaterials();
+        int added = 0, changed = 0, removed = 0;
+
+        for (int i = 0; i < MATERIALS.length; i++) {
+            byte type = types[i];
+            if (type == -2 || (type == materialTypes[i] && (type == -1 || prices[i] == materialPrices[i]))) continue;
+
+            byte previousType = materialTypes[i];
+            long previousPrice = materialPrices[i];
+            materialTypes[i] = type;
+            materialPrices[i] = type == -1 ? 0 : prices[i];
+            if (!initialized) continue;
+
+            GlobalShopItem item = items[i];
+            if (type == -1) {
+                if (item != null) {
+                    CategoryView.remove(item);
+                    item.delist();
+                }
+                removed++;
+            } else if (item == null) {
+                GlobalShop.add(new GlobalShopItem(MATERIALS[i], Money.ofCents(prices[i]), initialAmount, SHOP_ITEM_TYPES[type]));
+                added++;
+            } else {
+                if (item.getShopItemType().ordinal() != type) item.setShopItemType(SHOP_ITEM_TYPES[type]);
+                if (previousType == -1 || previousPrice != prices[i]) item.setBasePrice(Money.ofCents(prices[i]));
+                if (previousType == -1) CategoryView.add(item);
+                changed++;
+            }
+        }
+
+        if (initialized) {
+            Bukkit.getLogger().info("Applied the catalog: " + added + " items added, " + changed + " items changed, " +
+                    removed + " items not sold anymore.");
+        }
+    }
+
+    /**
+     * Classifies every Material once, so that canSell(), getMaterialType() and getBasePrice() are array
+     * lookups instead of matching the Material name against every prohibited word and price map.
+     * The classification is generated at build time in GeneratedMaterialCatalog, so it is just copied,
+     * unless the server runs another API version than the plugin was built with: then the rules are evaluated here.
+     * It runs when the shop is initialized, and again only if it is called explicitly
+     */
+    public static void classifyMaterials() {
+        if (GeneratedMaterialCatalog.MATERIALS_HASH == TradeJournal.MATERIALS_HASH) {
+            Arrays.fill(materialTypes, (byte) -1);
+            Arrays.fill(materialPrices, 0);
+            for (int i = 0; i < GeneratedMaterialCatalog.ORDINALS.length; i++) {
+                materialTypes[GeneratedMaterialCatalog.ORDINALS[i]] = (byte) GeneratedMaterialCatalog.TYPES[i].ordinal();
+                materialPrices[GeneratedMaterialCatalog.ORDINALS[i]] = GeneratedMaterialCatalog.PRICES[i];
+            }
+            classified = true;
+            return;
+        }
+
+        Bukkit.getLogger().warning("The plugin was built against spigot-api " + GeneratedMaterialCatalog.API_VERSION +
+                ", whose Materials are different from the ones of this server. Classifying them on enable.");
+        for (Material material : MATERIALS) {
+            int i = material.ordinal();
+            AbstractMap.SimpleEntry<ShopItemType, Double> info = GlobalShop.findMaterialInfo(material);
+
+            boolean allowedWord = true;
+            for (String word : PROHIBITED_WORDS) {
+                if (StringUtils.doesMaterialNameContainString(material.name(), word) ||
+                        PROHIBITED_MATERIALS.contains(material)) allowedWord = false;
+            }
+
+            boolean sellable = info != null && info.getValue() != 0.0 && allowedWord;
+            materialTypes[i] = sellable ? (byte) info.getKey().ordinal() : -1;
+            materialPrices[i] = sellable ? Money.toCents(info.getValue()) : 0;
+        }
+        classified = true;
     }
 
     /**
@@ -250,13 +381,21 @@ public class GlobalShop {
      * @return true if the Material can be sold, false if it can't
      */
     public static boolean canSell(Material material) {
-        boolean allowedWord = true;
-        for (String word : PROHIBITED_WORDS) {
-            if (StringUtils.doesMaterialNameContainString(material.name(), word) ||
-                    PROHIBITED_MATERIALS.contains(material)) allowedWord = false;
-        }
+        if (!classified) GlobalShop.classifyMaterials();
+        return materialTypes[material.ordinal()] != -1;
+    }
 
-        return getDefaultPrice(material) != 0.0 && allowedWord;
+    /**
+     * Gets the ShopItemType the specified Material is sold as
+     *
+     * @param material The Material we must get the ShopItemType of
+     * @return The ShopItemType of the Material, or null if it can't be sold
+     */
+    @Nullable
+    public static ShopItemType getMaterialType(Material material) {
+        if (!classified) GlobalShop.classifyMaterials();
+        byte type = materialTypes[material.ordinal()];
+        return type == -1 ? null : SHOP_ITEM_TYPES[type];
     }
 
     /**
@@ -264,24 +403,38 @@ public class GlobalShop {
      *
      * @param material The Material we must get the default price of
      * @return The price for which the Material should be sold to if there are no other items of that
-     * type on the Market
+     * type on the Market, or zero if it can't be sold
      */
-    private static double getDefaultPrice(Material material) {
-        AbstractMap.SimpleEntry<ShopItemType, Double> info = GlobalShop.getMaterialInfo(material);
-        if (info == null) return 0.0;
+    public static Money getBasePrice(Material material) {
+        if (!classified) GlobalShop.classifyMaterials();
+        return Money.ofCents(materialPrices[material.ordinal()]);
+    }
 
-        return info.getValue();
+    /**
+     * Creates a read-only price map that keeps the order its entries are declared in. A Material name can contain
+     * more than one key, and findMaterialInfo() returns the first one, like GenerateMaterialCatalog.groovy does,
+     * so the order must not depend on the hashes of the keys
+     *
+     * @param entries The keys and prices, in the order they are searched
+     * @return The price map
+     */
+    @SafeVarargs
+    private static Map<String, Double> orderedMap(Map.Entry<String, Double>... entries) {
+        Map<String, Double> value = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : entries) value.put(entry.getKey(), entry.getValue());
+        return Collections.unmodifiableMap(value);
     }
 
     /**
-     * Gets info about the specified material
+     * Searches the price maps for the specified material. It is slow, so it is only used by classifyMaterials().
+     * src/build/groovy/GenerateMaterialCatalog.groovy evaluates the same rules, keep them in sync
      *
      * @param material The Material to search the info of
      * @return An AbstractMap whose key is the ShopItemType of the material, and
      * whose value is its price. It returns null if the Material is invalid
      */
     @Nullable
-    private static AbstractMap.SimpleEntry<ShopItemType, Double> getMaterialInfo(Material material) {
+    private static AbstractMap.SimpleEntry<ShopItemType, Double> findMaterialInfo(Material material) {
         String materialName = material.name().toLowerCase();
         List<Map<String, Double>> maps = List.of(FOOD_PRICES, ITEM_PRICES, BLOCK_PRICES, ORE_PRICES, DECORATION_PRICES);
         List<ShopItemType> types = List.of(ShopItemType.FOOD, ShopItemType.ITEM, ShopItemType.BLOCK, ShopItemType.ORE, ShopItemType.DECORATIVE);
@@ -306,14 +459,26 @@ public class GlobalShop {
      * @return The Inventory that contains all the Items of the specified type
      */
     public static Inventory getGUI(ShopItemType type, Plugin plugin) {
+        return GlobalShop.getGUI(type, plugin, ShopSortOrder.NAME);
+    }
+
+    /**
+     * Gets the general Inventory of the specified ShopItemType, with its items in the specified order
+     *
+     * @param type   The ShopItemType to get the general Inventory of
+     * @param plugin The main plugin instance
+     * @param order  The order to show the items in
+     * @return The Inventory that contains all the Items of the specified type
+     */
+    public static Inventory getGUI(ShopItemType type, Plugin plugin, ShopSortOrder order) {
         Inventory value;
 
         switch (type) {
-            case ITEM -> value = getItemShopGUI(plugin);
-            case FOOD -> value = getFoodShopGUI(plugin);
-            case DECORATIVE -> value = getDecorationShopGUI(plugin);
-            case BLOCK -> value = getBlockShopGUI(plugin);
-            case ORE -> value = getOreShopGUI(plugin);
+            case ITEM -> value = getItemShopGUI(plugin, order);
+            case FOOD -> value = getFoodShopGUI(plugin, order);
+            case DECORATIVE -> value = getDecorationShopGUI(plugin, order);
+            case BLOCK -> value = getBlockShopGUI(plugin, order);
+            case ORE -> value = getOreShopGUI(plugin, order);
             case null, default -> value = Bukkit.createInventory(null, 9, " ");
         }
 
@@ -323,14 +488,13 @@ public class GlobalShop {
     /**
      * Gets the Inventory containing all the blocks that the GlobalShop sells
      *
-     * @param main The main plugin instance
+     * @param main  The main plugin instance
+     * @param order The order to show the items in
      * @return The Inventory containing all the blocks that the GlobalShop sells
      */
-    private static Inventory getBlockShopGUI(Plugin main) {
+    private static Inventory getBlockShopGUI(Plugin main, ShopSortOrder order) {
         /// This procedure is used to get all the category shops!
-        /// Create a list in which there are going to be all the items of the specific category type that the Shop sells
         /// In this case we are talking about blocks
-        List<ItemStack> blocks = new ArrayList<>();
 
         /// Create the factory the MultipleInventory will be based on
         InventoryFactory factory = new InventoryFactory(6, "Block shop", main)
@@ -349,41 +513,27 @@ public class GlobalShop {
                     }
                 })
                 .setClicksAllowed(false)
-                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main));
-
-        /// Get all ShopItems, then filter them and only get the items of the category this function is linked to,
-        /// then just add each of these to the list we created before
-        for (GlobalShopItem item : GlobalShop.shop) {
-            if (item.getShopItemType().equals(ShopItemType.BLOCK)) {
-                blocks.add(new ItemStackFactory(item.getMaterial())
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&8Block"))
-                        .addBlankLoreLine()
-                        .addLoreLine(new StringFactory()
-                                .append("Buy price:").setColor('7')
-                                .append(item.getBuyPrice() + "$").setColor('6')
-                                .get())
-                        .addLoreLine(new StringFactory()
-                                .append("Sell price:").setColor('7')
-                                .append(item.getSellPrice() + "$").setColor('6')
-                                .get())
-                        .addBlankLoreLine()
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
-                        .get());
-            }
-        }
-
-        return new MultipleInventoryFactory(blocks, main, factory)
+                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main))
+                /// The sort button reopens the category in the next order
+                .setAction(SORT_SLOT, e -> e.getWhoClicked().openInventory(getGUI(ShopItemType.BLOCK, main, order.next())));
+
+        /// Get the items of the category this function is linked to from its CategoryView, which keeps them
+        /// sorted in every order, so nothing gets filtered or sorted here. Their ItemStacks are only created
+        /// when the page they are in gets opened
+        GlobalShopItem[] blocks = CategoryView.get(ShopItemType.BLOCK, order).getItems();
+        return new MultipleInventoryFactory(blocks.length, i -> getCategoryItem(blocks[i], "&8Block"), main, factory)
+                .setItem(SORT_SLOT, getSortItem(order))
                 .get();
     }
 
     /**
      * Gets the Inventory containing all the blocks that the GlobalShop sells
      *
-     * @param main The main plugin instance
+     * @param main  The main plugin instance
+     * @param order The order to show the items in
      * @return The Inventory containing all the blocks that the GlobalShop sells
      */
-    public static Inventory getOreShopGUI(Plugin main) {
-        List<ItemStack> ores = new ArrayList<>();
+    public static Inventory getOreShopGUI(Plugin main, ShopSortOrder order) {
         InventoryFactory factory = new InventoryFactory(6, "Ore shop", main)
                 .setGlobalAction(e -> {
                     if (e.getCurrentItem() == null) return;
@@ -395,28 +545,12 @@ public class GlobalShop {
                     }
                 })
                 .setClicksAllowed(false)
-                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main));
-
-        for (GlobalShopItem item : GlobalShop.shop) {
-            if (item.getShopItemType().equals(ShopItemType.ORE)) {
-                ores.add(new ItemStackFactory(item.getMaterial())
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&8Ore"))
-                        .addBlankLoreLine()
-                        .addLoreLine(new StringFactory()
-                                .append("Buy price:").setColor('7')
-                                .append(item.getBuyPrice() + "$").setColor('6')
-                                .get())
-                        .addLoreLine(new StringFactory()
-                                .append("Sell price:").setColor('7')
-                                .append(item.getSellPrice() + "$").setColor('6')
-                                .get())
-                        .addBlankLoreLine()
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
-                        .get());
-            }
-        }
+                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main))
+                .setAction(SORT_SLOT, e -> e.getWhoClicked().openInventory(getGUI(ShopItemType.ORE, main, order.next())));
 
-        return new MultipleInventoryFactory(ores, main, factory)
+        GlobalShopItem[] ores = CategoryView.get(ShopItemType.ORE, order).getItems();
+        return new MultipleInventoryFactory(ores.length, i -> getCategoryItem(ores[i], "&8Ore"), main, factory)
+                .setItem(SORT_SLOT, getSortItem(order))
                 .get();
     }
 
@@ -424,11 +558,11 @@ public class GlobalShop {
      * Gets the Inventory containing all the items that the GlobalShop sells. Further
      * comments about the code are contained in GlobalShop.getBlockShopGUI()
      *
-     * @param main The main plugin instance
+     * @param main  The main plugin instance
+     * @param order The order to show the items in
      * @return The Inventory containing all the items that the GlobalShop sells
      */
-    public static Inventory getItemShopGUI(Plugin main) {
-        List<ItemStack> ores = new ArrayList<>();
+    public static Inventory getItemShopGUI(Plugin main, ShopSortOrder order) {
         InventoryFactory factory = new InventoryFactory(6, "Item shop", main)
                 .setGlobalAction(e -> {
                     if (e.getCurrentItem() == null) return;
@@ -440,30 +574,12 @@ public class GlobalShop {
                     }
                 })
                 .setClicksAllowed(false)
-                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main));
-
-        for (GlobalShopItem item : GlobalShop.shop) {
-            if (item.getShopItemType().equals(ShopItemType.ITEM)) {
-                if (item.getMaterial() != null) {
-                    ores.add(new ItemStackFactory(item.getMaterial())
-                            .addLoreLine(StringUtils.formatColorCodes('&', "&8Item"))
-                            .addBlankLoreLine()
-                            .addLoreLine(new StringFactory()
-                                    .append("Buy price:").setColor('7')
-                                    .append(item.getBuyPrice() + "$").setColor('6')
-                                    .get())
-                            .addLoreLine(new StringFactory()
-                                    .append("Sell price:").setColor('7')
-                                    .append(item.getSellPrice() + "$").setColor('6')
-                                    .get())
-                            .addBlankLoreLine()
-                            .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
-                            .get());
-                }
-            }
-        }
+                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main))
+                .setAction(SORT_SLOT, e -> e.getWhoClicked().openInventory(getGUI(ShopItemType.ITEM, main, order.next())));
 
-        return new MultipleInventoryFactory(ores, main, factory)
+        GlobalShopItem[] ores = CategoryView.get(ShopItemType.ITEM, order).getItems();
+        return new MultipleInventoryFactory(ores.length, i -> getCategoryItem(ores[i], "&8Item"), main, factory)
+                .setItem(SORT_SLOT, getSortItem(order))
                 .get();
     }
 
@@ -471,11 +587,11 @@ public class GlobalShop {
      * Gets the Inventory containing all the foods that the GlobalShop sells. Further
      * comments about the code are contained in GlobalShop.getBlockShopGUI()
      *
-     * @param main The main plugin instance
+     * @param main  The main plugin instance
+     * @param order The order to show the items in
      * @return The Inventory containing all the foods that the GlobalShop sells
      */
-    public static Inventory getFoodShopGUI(Plugin main) {
-        List<ItemStack> foods = new ArrayList<>();
+    public static Inventory getFoodShopGUI(Plugin main, ShopSortOrder order) {
         InventoryFactory factory = new InventoryFactory(6, "Food shop", main)
                 .setGlobalAction(e -> {
                     if (e.getCurrentItem() == null) return;
@@ -487,28 +603,12 @@ public class GlobalShop {
                     }
                 })
                 .setClicksAllowed(false)
-                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main));
-
-        for (GlobalShopItem item : GlobalShop.shop) {
-            if (item.getShopItemType().equals(ShopItemType.FOOD)) {
-                foods.add(new ItemStackFactory(item.getMaterial())
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&8Food"))
-                        .addBlankLoreLine()
-                        .addLoreLine(new StringFactory()
-                                .append("Buy price:").setColor('7')
-                                .append(item.getBuyPrice() + "$").setColor('6')
-                                .get())
-                        .addLoreLine(new StringFactory()
-                                .append("Sell price:").setColor('7')
-                                .append(item.getSellPrice() + "$").setColor('6')
-                                .get())
-                        .addBlankLoreLine()
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
-                        .get());
-            }
-        }
+                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main))
+                .setAction(SORT_SLOT, e -> e.getWhoClicked().openInventory(getGUI(ShopItemType.FOOD, main, order.next())));
 
-        return new MultipleInventoryFactory(foods, main, factory)
+        GlobalShopItem[] foods = CategoryView.get(ShopItemType.FOOD, order).getItems();
+        return new MultipleInventoryFactory(foods.length, i -> getCategoryItem(foods[i], "&8Food"), main, factory)
+                .setItem(SORT_SLOT, getSortItem(order))
                 .get();
     }
 
@@ -516,11 +616,11 @@ public class GlobalShop {
      * Gets the Inventory containing all the decorative blocks that the GlobalShop sells. Further
      * comments about the code are contained in GlobalShop.getBlockShopGUI()
      *
-     * @param main The main plugin instance
+     * @param main  The main plugin instance
+     * @param order The order to show the items in
      * @return The Inventory containing all the decorative blocks that the GlobalShop sells
      */
-    public static Inventory getDecorationShopGUI(Plugin main) {
-        List<ItemStack> foods = new ArrayList<>();
+    public static Inventory getDecorationShopGUI(Plugin main, ShopSortOrder order) {
         InventoryFactory factory = new InventoryFactory(6, "Decoration shop", main)
                 .setGlobalAction(e -> {
                     if (e.getCurrentItem() == null) return;
@@ -532,28 +632,57 @@ public class GlobalShop {
                     }
                 })
                 .setClicksAllowed(false)
-                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main));
-
-        for (GlobalShopItem item : GlobalShop.shop) {
-            if (item.getShopItemType().equals(ShopItemType.DECORATIVE)) {
-                foods.add(new ItemStackFactory(item.getMaterial())
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&8Decoration"))
-                        .addBlankLoreLine()
-                        .addLoreLine(new StringFactory()
-                                .append("Buy price:").setColor('7')
-                                .append(item.getBuyPrice() + "$").setColor('6')
-                                .get())
-                        .addLoreLine(new StringFactory()
-                                .append("Sell price:").setColor('7')
-                                .append(item.getSellPrice() + "$").setColor('6')
-                                .get())
-                        .addBlankLoreLine()
-                        .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
-                        .get());
-            }
+                .setInventoryToShowOnClose(GlobalShop.getHomeGUI(main))
+                .setAction(SORT_SLOT, e -> e.getWhoClicked().openInventory(getGUI(ShopItemType.DECORATIVE, main, order.next())));
+
+        GlobalShopItem[] foods = CategoryView.get(ShopItemType.DECORATIVE, order).getItems();
+        return new MultipleInventoryFactory(foods.length, i -> getCategoryItem(foods[i], "&8Decoration"), main, factory)
+                .setItem(SORT_SLOT, getSortItem(order))
+                .get();
+    }
+
+    /**
+     * Gets the ItemStack that represents a GlobalShopItem in the Inventory of its category
+     *
+     * @param item The GlobalShopItem
+     * @param type The line that tells the category of the item, with color codes
+     * @return The ItemStack with the prices of the item
+     */
+    private static ItemStack getCategoryItem(GlobalShopItem item, String type) {
+        return new ItemStackFactory(item.getMaterial())
+                .addLoreLine(StringUtils.formatColorCodes('&', type))
+                .addBlankLoreLine()
+                .addLoreLine(new StringFactory()
+                        .append("Buy price:").setColor('7')
+                        .append(item.getBuyPrice() + "$").setColor('6')
+                        .get())
+                .addLoreLine(new StringFactory()
+                        .append("Sell price:").setColor('7')
+                        .append(item.getSellPrice() + "$").setColor('6')
+                        .get())
+                .addBlankLoreLine()
+                .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to view details!"))
+                .get();
+    }
+
+    /**
+     * Gets the button that switches the order of the items of a category
+     *
+     * @param order The order the items are shown in
+     * @return The ItemStack that lists every order, highlighting the current one
+     */
+    private static ItemStack getSortItem(ShopSortOrder order) {
+        ItemStackFactory factory = new ItemStackFactory(Material.HOPPER)
+                .setName(StringUtils.formatColorCodes('&', "&eSort items"));
+
+        for (ShopSortOrder current : ShopSortOrder.values()) {
+            factory.addLoreLine(StringUtils.formatColorCodes('&', current == order
+                    ? "&a> " + current.getName()
+                    : "&7" + current.getName()));
         }
 
-        return new MultipleInventoryFactory(foods, main, factory)
+        return factory.addBlankLoreLine()
+                .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to sort by " + order.next().getName() + "!"))
                 .get();
     }
 
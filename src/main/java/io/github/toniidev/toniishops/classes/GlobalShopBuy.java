@@ -12,7 +12,12 @@ public class GlobalShopBuy extends GlobalShopAction {
      * @param player The player linked to this action
      * @param price The price to pay for this action to be completed
      */
-    public GlobalShopBuy(boolean multiple, long amount, Player player, double price) {
+    public GlobalShopBuy(boolean multiple, long amount, Player player, Money price) {
         super((multiple ? GlobalShopActionType.BUY_MULTIPLE : GlobalShopActionType.BUY_ONE), amount, player, price);
     }
+
+    @Override
+    public GlobalShopAction withAmount(long amount, Money price) {
+        return new GlobalShopBuy(this.getType().equals(GlobalShopActionType.BUY_MULTIPLE), amount, this.getPlayer(), price);
+    }
 }
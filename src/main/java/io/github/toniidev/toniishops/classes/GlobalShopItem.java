@@ -1,14 +1,17 @@
 package io.github.toniidev.toniishops.classes;
 
-import io.github.toniidev.toniishops.commands.Buy;
-import io.github.toniidev.toniishops.commands.SellCustomAmount;
 import io.github.toniidev.toniishops.enums.GlobalShopActionType;
 import io.github.toniidev.toniishops.enums.ShopItemType;
+import io.github.toniidev.toniishops.enums.TradeKind;
 import io.github.toniidev.toniishops.extendable.GlobalShopAction;
 import io.github.toniidev.toniishops.factories.*;
+import io.github.toniidev.toniishops.interfaces.PricingCurve;
+import io.github.toniidev.toniishops.strings.ConsoleString;
 import io.github.toniidev.toniishops.strings.GlobalShopError;
+import io.github.toniidev.toniishops.strings.ShopError;
 import io.github.toniidev.toniishops.utils.NumberUtils;
 import io.github.toniidev.toniishops.utils.StringUtils;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
@@ -16,17 +19,33 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.plugin.Plugin;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 public class GlobalShopItem {
-    private long amountOnTheMarket;
+    /// The amount on the market, the base price, the market version and the items held by buy Quotes
+    /// of this item are stored in the slot of MarketState at this index
+    private final int index;
+    private final QuoteCache quoteCache = new QuoteCache();
+
+    /// Items that valid sell Quotes are going to add to the market. Together with the items held by buy Quotes,
+    /// new quotes are priced as if they were already traded
+    private long pendingSellAmount = 0;
+    /// Valid Quotes, in the order they were locked. Since every Quote lasts the same time, they also expire in this order
+    private final LinkedHashMap<Long, Quote> quotes = new LinkedHashMap<>();
+    /// The valid Quote of every player, so that locking a new one finds the previous one without scanning every Quote
+    private final HashMap<UUID, Quote> quotesByPlayer = new HashMap<>();
 
     private final Material material;
-    private final double basePrice;
-    private final ShopItemType shopItemType;
+    private ShopItemType shopItemType;
+    private PricingCurve pricingCurve;
+    private final MarketSpread spread;
+    private final OrderBook orderBook = new OrderBook(this);
+    private final CircuitBreaker circuitBreaker;
+    private final PriceAlerts priceAlerts;
 
-    public final List<GlobalShopBuy> buyHistory = new ArrayList<>();
-    public final List<GlobalShopSell> sellHistory = new ArrayList<>();
+    private final TradeHistory buyHistory = new TradeHistory(TradeHistory.DEFAULT_CAPACITY);
+    private final TradeHistory sellHistory = new TradeHistory(TradeHistory.DEFAULT_CAPACITY);
 
     /**
      * Creates a new GlobalShopItem instance
@@ -35,55 +54,83 @@ public class GlobalShopItem {
      * @param price        The starting price at which this GlobalShopItem is sold
      * @param amount       The starting amount of Items of the specified material that will be sold
      */
-    public GlobalShopItem(Material itemMaterial, double price, long amount, ShopItemType type) {
+    public GlobalShopItem(Material itemMaterial, Money price, long amount, ShopItemType type) {
         this.material = itemMaterial;
-        this.basePrice = price;
-        this.amountOnTheMarket = amount;
+        this.index = itemMaterial.ordinal();
+        MarketState.register(itemMaterial, amount, price);
         this.shopItemType = type;
+        this.pricingCurve = type.getPricingCurve();
+        this.spread = new MarketSpread(this.pricingCurve.getMargin());
+        this.circuitBreaker = new CircuitBreaker(this.getSellPrice());
+        this.priceAlerts = new PriceAlerts(itemMaterial);
     }
 
     /**
-     * Converts all the GlobalShopBuy items contained in this.buyHistory into a List of ItemStacks
+     * Default getter for this class
      *
-     * @return A List of ItemStacks, each of which is linked to a GlobalShopBuy. Every ItemStack
-     * has this.material as Material and other info in its lore
+     * @return The last buys of this GlobalShopItem, from the market and from the orders
      */
-    public List<ItemStack> getBuyHistory() {
-        List<ItemStack> value = new ArrayList<>();
-        for (GlobalShopBuy buy : buyHistory) {
-            value.add(new ItemStackFactory(new ItemStack(this.getMaterial(), Math.min(64, (int) buy.getAmount())))
-                    .setName(StringUtils.formatColorCodes('&', "&aItem buy"))
-                    .addLoreLine("Informations about this action")
-                    .addBlankLoreLine()
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Player: &f" + buy.getPlayer().getDisplayName()))
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Price: &f" + buy.getPrice() + "$"))
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Amount: &f" + buy.getAmount() + "x"))
-                    .get());
-        }
+    public TradeHistory getBuyTradeHistory() {
+        return this.buyHistory;
+    }
 
-        return value;
+    /**
+     * Default getter for this class
+     *
+     * @return The last sells of this GlobalShopItem, to the market and from the orders
+     */
+    public TradeHistory getSellTradeHistory() {
+        return this.sellHistory;
     }
 
     /**
-     * Converts all the GlobalShopSell items contained in this.sellHistory into a List of ItemStacks
+     * Creates the ItemStack that shows one trade of a history
      *
-     * @return A List of ItemStacks, each of which is linked to a GlobalShopSell. Every ItemStack
-     * has this.material as Material and other info in its lore
+     * @param history The history the trade is in
+     * @param i       The index of the trade in the history
+     * @param name    The name of the ItemStack, with color codes
+     * @return An ItemStack that has this.material as Material and the info about the trade in its lore
      */
-    public List<ItemStack> getSellHistory() {
-        List<ItemStack> value = new ArrayList<>();
-        for (GlobalShopSell sell : sellHistory) {
-            value.add(new ItemStackFactory(new ItemStack(this.getMaterial(), Math.min(64, (int) sell.getAmount())))
-                    .setName(StringUtils.formatColorCodes('&', "&6Item sell"))
-                    .addLoreLine("Informations about this action")
-                    .addBlankLoreLine()
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Player: &f" + sell.getPlayer().getDisplayName()))
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Price: &f" + sell.getPrice() + "$"))
-                    .addLoreLine(StringUtils.formatColorCodes('&', "Amount: &f" + sell.getAmount() + "x"))
-                    .get());
-        }
+    private ItemStack getHistoryItem(TradeHistory history, int i, String name) {
+        /// The player may be offline, so only his name is shown
+        String playerName = Bukkit.getOfflinePlayer(history.getPlayer(i)).getName();
 
-        return value;
+        return new ItemStackFactory(new ItemStack(this.getMaterial(), (int) Math.min(64, history.getAmount(i))))
+                .setName(StringUtils.formatColorCodes('&', name))
+                .addLoreLine("Informations about this action")
+                .addBlankLoreLine()
+                .addLoreLine(StringUtils.formatColorCodes('&', "Player: &f" + (playerName == null ? history.getPlayer(i) : playerName)))
+                .addLoreLine(StringUtils.formatColorCodes('&', "Price: &f" + history.getPrice(i) + "$"))
+                .addLoreLine(StringUtils.formatColorCodes('&', "Amount: &f" + history.getAmount(i) + "x"))
+                .get();
+    }
+
+    /**
+     * Gets the Inventory where a history can be browsed. Only the ItemStacks of the pages
+     * that are opened get created
+     *
+     * @param history The history to browse
+     * @param name    The name of the ItemStacks of the trades, with color codes
+     * @param plugin  The main plugin instance
+     * @param player  The player that browses the history
+     * @return The first page of the history, or null if the history is empty
+     */
+    @Nullable
+    private Inventory getHistoryGUI(TradeHistory history, String name, Plugin plugin, HumanEntity player) {
+        InventoryFactory historyFactory = new InventoryFactory(6, "History", plugin)
+                .setClicksAllowed(false)
+                .setInventoryToShowOnClose(getSpecificItemView(plugin, player));
+
+        /// Trades can be added while the player browses, so each one is found by how many trades
+        /// were added before it. The ones that have been overwritten meanwhile are shown as blank
+        long first = history.getTotal() - history.size();
+        return new MultipleInventoryFactory(history.size(), i -> {
+            long index = first + i - (history.getTotal() - history.size());
+            if (index < 0) return new ItemStackFactory(Material.GRAY_STAINED_GLASS_PANE)
+                    .setName(StringUtils.formatColorCodes('&', "&8No longer available"))
+                    .get();
+            return this.getHistoryItem(history, (int) index, name);
+        }, plugin, historyFactory).get();
     }
 
     /**
@@ -91,8 +138,8 @@ public class GlobalShopItem {
      *
      * @return The sell price of this GlobalShopItem instance based on how many items are actually being sold
      */
-    public double getSellPrice() {
-        return NumberUtils.round(this.basePrice / (1 + (amountOnTheMarket / 100.0)), 2);
+    public Money getSellPrice() {
+        return Money.ofCents(Math.round(MarketState.basePrice[index] * this.pricingCurve.getFactor(getAmountOnTheMarket())));
     }
 
     /**
@@ -100,9 +147,74 @@ public class GlobalShopItem {
      *
      * @return The buy price of this GlobalShopItem instance based on how many items are actually being sold
      */
-    public double getBuyPrice() {
-        double margin = 1.25;
-        return NumberUtils.round(this.getSellPrice() * (margin), 2);
+    public Money getBuyPrice() {
+        return this.getSellPrice().times(this.spread.getMargin());
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The PricingCurve this GlobalShopItem instance is priced with
+     */
+    public PricingCurve getPricingCurve() {
+        return this.pricingCurve;
+    }
+
+    /**
+     * Default setter for this class
+     *
+     * @param curve The PricingCurve this GlobalShopItem instance has to be priced with from now on
+     */
+    public void setPricingCurve(PricingCurve curve) {
+        this.pricingCurve = curve;
+        this.spread.setBaseMargin(curve.getMargin());
+        MarketState.version[index]++;
+        CategoryView.update(this);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The MarketSpread that computes the buy margin of this GlobalShopItem
+     */
+    public MarketSpread getSpread() {
+        return this.spread;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The OrderBook that holds the limit orders placed on this GlobalShopItem
+     */
+    public OrderBook getOrderBook() {
+        return this.orderBook;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The CircuitBreaker that halts trading on this GlobalShopItem when its price moves too fast
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The price alerts players subscribed to on this GlobalShopItem
+     */
+    public PriceAlerts getPriceAlerts() {
+        return this.priceAlerts;
+    }
+
+    /**
+     * Tells whether trading on this GlobalShopItem is halted by its CircuitBreaker
+     *
+     * @return true if this GlobalShopItem can't be traded right now
+     */
+    public boolean isTradingHalted() {
+        return this.circuitBreaker.isHalted(System.currentTimeMillis());
     }
 
     /**
@@ -114,12 +226,58 @@ public class GlobalShopItem {
         return this.shopItemType;
     }
 
+    /**
+     * Moves this GlobalShopItem to another category, pricing it with the PricingCurve of the new ShopItemType.
+     * The amount on the market, the history and the orders are kept. See ShopCatalog
+     *
+     * @param type The new ShopItemType of this GlobalShopItem
+     */
+    public void setShopItemType(ShopItemType type) {
+        Money from = this.getSellPrice();
+        ShopItemType previous = this.shopItemType;
+        this.shopItemType = type;
+        this.setPricingCurve(type.getPricingCurve());
+        this.onRepriced(from);
+        CategoryView.move(this, previous);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The price of this GlobalShopItem when the market has its reference amount of items
+     */
+    public Money getBasePrice() {
+        return Money.ofCents(MarketState.basePrice[index]);
+    }
+
+    /**
+     * Changes the base price of this GlobalShopItem. The amount on the market, the history and the orders
+     * are kept. See ShopCatalog
+     *
+     * @param price The new base price
+     */
+    public void setBasePrice(Money price) {
+        Money from = this.getSellPrice();
+        MarketState.basePrice[index] = price.getCents();
+        MarketState.version[index]++;
+        this.onRepriced(from);
+        CategoryView.update(this);
+    }
+
+    /// Lets price alerts fire if the new price crosses them, and restarts the circuit breaker from the new price
+    private void onRepriced(Money from) {
+        Money to = this.getSellPrice();
+        this.circuitBreaker.rebase(to, System.currentTimeMillis());
+        this.priceAlerts.onPriceChange(from, to);
+    }
+
     /**
      * Increases the amount of Items of the Material linked to this GlobalShopItem instance
      * that are currently being sold on the market
      */
     public void increaseAmount() {
-        this.amountOnTheMarket++;
+        MarketState.stock[index]++;
+        MarketState.version[index]++;
     }
 
     /**
@@ -127,29 +285,26 @@ public class GlobalShopItem {
      * that are currently being sold on the market
      */
     public void decreaseAmount() {
-        this.amountOnTheMarket--;
+        MarketState.stock[index]--;
+        MarketState.version[index]++;
     }
 
     /**
-     * Adds the specified number of Items on the Global Server market
+     * Pays the specified player for the items he sold and adds them to the market
      *
-     * @param player The player that sold these items
-     * @param amount The amount of Items to sell on the shop
+     * @param player          The player that sold these items
+     * @param amount          The amount of Items he sold
+     * @param cumulativePrice The money the player receives
      */
-    public void sellCustomAmount(Player player, long amount) {
+    private void completeSell(Player player, long amount, Money cumulativePrice) {
         ServerPlayer serverPlayer = ServerPlayer.getPlayer(player);
         assert serverPlayer != null;
 
-        double cumulativePrice = 0.0;
+        serverPlayer.addMoney(cumulativePrice);
+        this.applyTrade(amount);
 
-        for (long i = 0; i < amount; i++) {
-            cumulativePrice += this.getSellPrice();
-            serverPlayer.addMoney(this.getSellPrice());
-            this.increaseAmount();
-        }
-
-        cumulativePrice = NumberUtils.round(cumulativePrice, 2);
-        sellHistory.add(new GlobalShopSell(true, amount, player, cumulativePrice));
+        sellHistory.add(System.currentTimeMillis(), player.getUniqueId(), amount, cumulativePrice);
+        TradeRecorder.record(TradeKind.GLOBAL_SELL, this.material, player.getUniqueId(), amount, cumulativePrice, this.getAmountOnTheMarket());
 
         player.sendMessage(new StringFactory()
                 .append("[Server]").setColor('a')
@@ -163,25 +318,21 @@ public class GlobalShopItem {
     }
 
     /**
-     * Removes the specified number of Items from the Global Server market
+     * Charges the specified player for the items he bought and removes them from the market
      *
-     * @param player The player that bought these items
-     * @param amount The amount of Items to buy from the shop
+     * @param player          The player that bought these items
+     * @param amount          The amount of Items he bought
+     * @param cumulativePrice The money the player pays
      */
-    public void buyCustomAmount(Player player, long amount) {
+    private void completeBuy(Player player, long amount, Money cumulativePrice) {
         ServerPlayer serverPlayer = ServerPlayer.getPlayer(player);
         assert serverPlayer != null;
 
-        double cumulativePrice = 0.0;
-
-        for (long i = 0; i < amount; i++) {
-            cumulativePrice += this.getBuyPrice();
-            serverPlayer.removeMoney(this.getBuyPrice());
-            this.decreaseAmount();
-        }
+        serverPlayer.removeMoney(cumulativePrice);
+        this.applyTrade(-amount);
 
-        cumulativePrice = NumberUtils.round(cumulativePrice, 2);
-        buyHistory.add(new GlobalShopBuy(true, amount, player, cumulativePrice));
+        buyHistory.add(System.currentTimeMillis(), player.getUniqueId(), amount, cumulativePrice);
+        TradeRecorder.record(TradeKind.GLOBAL_BUY, this.material, player.getUniqueId(), amount, cumulativePrice, this.getAmountOnTheMarket());
 
         player.sendMessage(new StringFactory()
                 .append("[Server]").setColor('a')
@@ -194,6 +345,54 @@ public class GlobalShopItem {
                 .get());
     }
 
+    /**
+     * Moves the amount on the market after a trade with the market, and lets the spread, the price alerts,
+     * the circuit breaker and the sorted views of its category know about it
+     *
+     * @param delta The amount of items that were added to the market, negative if they were taken from it
+     */
+    void applyTrade(long delta) {
+        long now = System.currentTimeMillis();
+        long from = this.getAmountOnTheMarket();
+        Money priceFrom = this.getSellPrice();
+        this.spread.record(Math.abs(delta), this.pricingCurve.getFactor(from),
+                this.pricingCurve.getFactor(from + delta), now);
+        this.setAmountOnTheMarket(from + delta);
+
+        Money priceTo = this.getSellPrice();
+        this.priceAlerts.onPriceChange(priceFrom, priceTo);
+        if (this.circuitBreaker.record(Math.abs(delta), priceTo, now)) {
+            Bukkit.getLogger().warning(ConsoleString.TRADING_HALTED.getMessage() + this.material);
+        }
+        CategoryView.update(this);
+    }
+
+    /**
+     * Moves the amount on the market for the market tick. A restock is not a trade, so the circuit breaker only
+     * shifts its window by the price change, without forgetting the trades in it, but it lets the price alerts fire.
+     * It is journaled as a stock change, so replaying the journal after a crash restores it
+     *
+     * @param amount The new amount of items on the market
+     */
+    void applyRestock(long amount) {
+        Money from = this.getSellPrice();
+        this.setAmountOnTheMarket(amount);
+        Money to = this.getSellPrice();
+        this.circuitBreaker.shift(to.getCents() - from.getCents());
+        this.priceAlerts.onPriceChange(from, to);
+        TradeRecorder.recordStock(this.material, amount);
+    }
+
+    /**
+     * Widens the spread of this GlobalShopItem if it is not traded as much as it was. The market version only
+     * changes if the margin did, so quotes stay valid otherwise. It runs on every market tick
+     *
+     * @param now The current time, in milliseconds
+     */
+    void decaySpread(long now) {
+        if (this.spread.decay(now)) MarketState.version[index]++;
+    }
+
     /**
      * Default getter for this class
      *
@@ -210,7 +409,7 @@ public class GlobalShopItem {
      * sold on the market
      */
     public long getAmountOnTheMarket() {
-        return this.amountOnTheMarket;
+        return MarketState.stock[index];
     }
 
     /**
@@ -218,7 +417,27 @@ public class GlobalShopItem {
      * @param amount The amount to set the amount of items of this GlobalShopItem to
      */
     public void setAmountOnTheMarket(long amount) {
-        this.amountOnTheMarket = amount;
+        MarketState.stock[index] = amount;
+        MarketState.version[index]++;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return A number that changes every time this GlobalShopItem gets traded or repriced. Two quotes
+     * computed at the same market version are always the same
+     */
+    public long getMarketVersion() {
+        return MarketState.version[index];
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The cache of the quotes of this GlobalShopItem, that also counts its hits and misses
+     */
+    public QuoteCache getQuoteCache() {
+        return this.quoteCache;
     }
 
     /**
@@ -296,23 +515,13 @@ public class GlobalShopItem {
                     }
                 })
                 .setAction(15, e -> {
-                    InventoryFactory historyFactory = new InventoryFactory(6, "History", plugin)
-                            .setClicksAllowed(false)
-                            .setInventoryToShowOnClose(getSpecificItemView(plugin, player));
-
-                    if (!this.getBuyHistory().isEmpty()) {
-                        e.getWhoClicked().openInventory(new MultipleInventoryFactory(this.getBuyHistory(), plugin, historyFactory)
-                                .get());
+                    if (!this.buyHistory.isEmpty()) {
+                        e.getWhoClicked().openInventory(getHistoryGUI(this.buyHistory, "&aItem buy", plugin, player));
                     }
                 })
                 .setAction(16, e -> {
-                    InventoryFactory historyFactory = new InventoryFactory(6, "History", plugin)
-                            .setClicksAllowed(false)
-                            .setInventoryToShowOnClose(getSpecificItemView(plugin, player));
-
-                    if (!this.getSellHistory().isEmpty()) {
-                        e.getWhoClicked().openInventory(new MultipleInventoryFactory(this.getSellHistory(), plugin, historyFactory)
-                                .get());
+                    if (!this.sellHistory.isEmpty()) {
+                        e.getWhoClicked().openInventory(getHistoryGUI(this.sellHistory, "&6Item sell", plugin, player));
                     }
                 })
 
@@ -320,39 +529,69 @@ public class GlobalShopItem {
     }
 
     /**
-     * Gets the price that someone receives if he tries to sell the specified amount of items
-     * @param amount The amount based on which the price should be calculated
-     * @return The price that someone would receive if he tried to sell the specified amount of items of this GlobalShopItem
+     * Gets the sum of the unrounded sell prices of one item for every amount on the market in
+     * [fromAmount, fromAmount + count). The PricingCurve answers with a table lookup or a closed
+     * form, so any quote costs the same, whatever the amount is
+     *
+     * @param fromAmount The amount on the market at which the first item is priced
+     * @param count      How many consecutive amounts on the market have to be summed
+     * @return The sum of the sell prices in cents, not rounded
      */
-    public Double getCumulativeSellPrice(long amount) {
-        double value = 0;
-        long prevAmountOnTheMarket = this.getAmountOnTheMarket();
+    private double getSellPriceSum(long fromAmount, long count) {
+        if (count <= 0) return 0.0;
+        return MarketState.basePrice[index] * this.pricingCurve.getFactorSum(fromAmount, count);
+    }
 
-        for (int i = 0; i < amount; i++) {
-            value += getSellPrice();
-            this.increaseAmount();
-        }
+    /**
+     * Gets the average sell price of the items of a trade with the market, without the buy margin, from
+     * the amount on the market the trade left. Buys and sells of the same items get the same price. See CandleSeries
+     *
+     * @param buy        Whether the items were bought from the market
+     * @param amount     The amount of items traded
+     * @param stockAfter The amount of items on the market after the trade
+     * @return The price of one item, in cents
+     */
+    long getReferencePrice(boolean buy, long amount, long stockAfter) {
+        long from = Math.max(0, buy ? stockAfter : stockAfter - amount);
+        return Math.round(getSellPriceSum(from, amount) / amount);
+    }
 
-        this.setAmountOnTheMarket(prevAmountOnTheMarket);
-        return NumberUtils.round(value, 2);
+    /**
+     * Gets the price that someone receives if he tries to sell the specified amount of items.
+     * The exact price of every item is summed and the total is rounded to the cent once, while the
+     * original loop summed the price of every item already rounded to the cent, so the two can differ by
+     * half a cent per item. HyperbolicPricingCurveTest checks the total against the exact sum
+     * @param amount The amount based on which the price should be calculated
+     * @return The price that someone would receive if he tried to sell the specified amount of items of this GlobalShopItem
+     */
+    public Money getCumulativeSellPrice(long amount) {
+        this.releaseExpiredQuotes(System.currentTimeMillis());
+        Money value = quoteCache.get(false, amount, getMarketVersion());
+        if (value != null) return value;
+
+        /// Every sold item increases the amount on the market, so the prices go from the current amount upwards.
+        /// Items that other players are already selling with a valid Quote come first
+        value = Money.ofCents(Math.round(getSellPriceSum(this.getAmountOnTheMarket() + this.pendingSellAmount, amount)));
+        quoteCache.put(false, amount, getMarketVersion(), value);
+        return value;
     }
 
     /**
-     * Gets the price that should be paid if someone tries to buy the specified amount of items
+     * Gets the price that should be paid if someone tries to buy the specified amount of items.
+     * If there aren't that many, it is only an estimate, see PricingCurve#getBuyFactorSum()
      * @param amount The amount based on which the price should be calculated
      * @return The price that should be paid if someone should buy the specified amount of items of this GlobalShopItem
      */
-    public Double getCumulativeBuyPrice(long amount) {
-        double value = 0;
-        long prevAmountOnTheMarket = this.getAmountOnTheMarket();
-
-        for (int i = 0; i < amount; i++) {
-            value += getBuyPrice();
-            this.amountOnTheMarket--;
-        }
-
-        this.setAmountOnTheMarket(prevAmountOnTheMarket);
-        return NumberUtils.round(value, 2);
+    public Money getCumulativeBuyPrice(long amount) {
+        this.releaseExpiredQuotes(System.currentTimeMillis());
+        Money value = quoteCache.get(true, amount, getMarketVersion());
+        if (value != null) return value;
+
+        /// Items that other players are already buying with a valid Quote are gone first
+        value = Money.ofCents(Math.round(MarketState.basePrice[index]
+                * this.pricingCurve.getBuyFactorSum(this.getAvailableAmount(), amount) * this.spread.getMargin()));
+        quoteCache.put(true, amount, getMarketVersion(), value);
+        return value;
     }
 
     /**
@@ -361,8 +600,8 @@ public class GlobalShopItem {
      * @param customAmount The amount of items that the action involves
      * @return The final price of the action
      */
-    private Double getFinalPrice(GlobalShopActionType action, long customAmount) {
-        double value = 0;
+    private Money getFinalPrice(GlobalShopActionType action, long customAmount) {
+        Money value = Money.ZERO;
         switch (action) {
             case BUY_ONE, BUY_MULTIPLE -> value = getCumulativeBuyPrice(customAmount);
             case SELL_ONE, SELL_MULTIPLE -> value = getCumulativeSellPrice(customAmount);
@@ -376,7 +615,7 @@ public class GlobalShopItem {
      * @param customAmount The amount of items that the action involves
      * @return The final price of the action
      */
-    private Double getFinalPrice(GlobalShopAction action, long customAmount) {
+    private Money getFinalPrice(GlobalShopAction action, long customAmount) {
         return getFinalPrice(action.getType(), customAmount);
     }
 
@@ -390,13 +629,12 @@ public class GlobalShopItem {
      * @return The Inventory in which the specified player can choose the amount of items to interact with
      */
     public Inventory getSelectAmountGUI(GlobalShopAction action, Plugin plugin, HumanEntity player) {
-        if ((action.getType().equals(GlobalShopActionType.BUY_ONE) || action.getType().equals(GlobalShopActionType.BUY_MULTIPLE)) &&
-                action.getAmount() > this.getAmountOnTheMarket())
-            return getSelectAmountGUI(action.setAmount(getAmountOnTheMarket())
-                    .setPrice(getFinalPrice(action, getAmountOnTheMarket())), plugin, player);
+        if (action.isBuy() && action.getAmount() > this.getAvailableAmount())
+            return getSelectAmountGUI(action.withAmount(getAvailableAmount(),
+                    getFinalPrice(action, getAvailableAmount())), plugin, player);
         if (action.getType().equals(GlobalShopActionType.SELL_MULTIPLE) && action.getAmount() > getPresenceInPlayerInventory(player))
-            return getSelectAmountGUI(action.setAmount(getPresenceInPlayerInventory(player))
-                    .setPrice(getFinalPrice(action, getPresenceInPlayerInventory(player))), plugin, player);
+            return getSelectAmountGUI(action.withAmount(getPresenceInPlayerInventory(player),
+                    getFinalPrice(action, getPresenceInPlayerInventory(player))), plugin, player);
 
         ItemStack buy = new ItemStackFactory(Material.LIME_STAINED_GLASS_PANE)
                 .setName(StringUtils.formatColorCodes('&', "&aBuy"))
@@ -424,14 +662,14 @@ public class GlobalShopItem {
                                     e1.getPlayer().openInventory(getSelectAmountGUI(action, plugin, player));
                                     return;
                                 }
-                                if (Integer.parseInt(e1.getMessage()) > getAmountOnTheMarket()) {
+                                if (Integer.parseInt(e1.getMessage()) > getAvailableAmount()) {
                                     e1.getPlayer().sendMessage(GlobalShopError.NOT_ENOUGH_ITEMS_SELLING.getMessage());
                                     e1.getPlayer().openInventory(getSelectAmountGUI(action, plugin, player));
                                     return;
                                 }
 
-                                e1.getPlayer().openInventory(getSelectAmountGUI(action.setAmount(Integer.parseInt(e1.getMessage()))
-                                        .setPrice(getFinalPrice(action, Integer.parseInt(e1.getMessage()))), plugin, player));
+                                e1.getPlayer().openInventory(getSelectAmountGUI(action.withAmount(Integer.parseInt(e1.getMessage()),
+                                        getFinalPrice(action, Integer.parseInt(e1.getMessage()))), plugin, player));
                             });
                 });
 
@@ -457,22 +695,21 @@ public class GlobalShopItem {
                     .setItem(14, new ItemStackFactory(Material.OAK_SIGN)
                             .setName(StringUtils.formatColorCodes('&', "&aCustom amount"))
                             .addBlankLoreLine()
-                            .addLoreLine(StringUtils.formatColorCodes('&', "Buy up to &a" + getAmountOnTheMarket() + "&7x"))
+                            .addLoreLine(StringUtils.formatColorCodes('&', "Buy up to &a" + getAvailableAmount() + "&7x"))
                             .addBlankLoreLine()
                             .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to specify!"))
                             .get())
                     .setItem(16, buy)
 
                     .setAction(10, e -> e.getWhoClicked().openInventory(this.getSelectAmountGUI
-                            (action.setAmount(1)
-                                    .setPrice(getFinalPrice(action, 1)), plugin, player)))
+                            (action.withAmount(1,
+                                    getFinalPrice(action, 1)), plugin, player)))
                     .setAction(12, e -> e.getWhoClicked().openInventory(this.getSelectAmountGUI
-                            (action.setAmount(64)
-                                    .setPrice(getFinalPrice(action, 64)), plugin, player)));
+                            (action.withAmount(64,
+                                    getFinalPrice(action, 64)), plugin, player)));
 
-            if (getAmountOnTheMarket() > 0) {
-                factory.setAction(16, e -> e.getWhoClicked().openInventory(getConfirmGUI(action
-                        .setPrice(getFinalPrice(action, action.getAmount())), plugin)));
+            if (getAvailableAmount() > 0) {
+                factory.setAction(16, e -> e.getWhoClicked().openInventory(getConfirmGUI(action, plugin)));
             }
         }
         if (action instanceof GlobalShopSell) {
@@ -514,16 +751,15 @@ public class GlobalShopItem {
                     .setItem(16, sell)
 
                     .setAction(10, e -> e.getWhoClicked().openInventory(this.getSelectAmountGUI
-                            (action.setAmount(1)
-                                    .setPrice(getFinalPrice(action, 1)), plugin, player)))
+                            (action.withAmount(1,
+                                    getFinalPrice(action, 1)), plugin, player)))
                     .setAction(11, e -> e.getWhoClicked().openInventory(this.getSelectAmountGUI
-                            (action.setAmount(64)
-                                    .setPrice(getFinalPrice(action, 64)), plugin, player)))
+                            (action.withAmount(64,
+                                    getFinalPrice(action, 64)), plugin, player)))
                     .setAction(12, e -> e.getWhoClicked().openInventory(this.getSelectAmountGUI
-                            (action.setAmount(getPresenceInPlayerInventory(player))
-                                    .setPrice(getFinalPrice(action, getPresenceInPlayerInventory(player))), plugin, player)))
-                    .setAction(16, e -> e.getWhoClicked().openInventory(getConfirmGUI(action
-                            .setPrice(getFinalPrice(action, action.getAmount())), plugin)));
+                            (action.withAmount(getPresenceInPlayerInventory(player),
+                                    getFinalPrice(action, getPresenceInPlayerInventory(player))), plugin, player)))
+                    .setAction(16, e -> e.getWhoClicked().openInventory(getConfirmGUI(action, plugin)));
         }
 
         return factory.fill(new ItemStackFactory(Material.BLACK_STAINED_GLASS_PANE)
@@ -535,78 +771,215 @@ public class GlobalShopItem {
     }
 
     /**
-     * Gets the GUI where a certain action is confirmed
+     * Gets the GUI where a certain action is confirmed. Opening it locks a Quote for the action,
+     * so that the price shown is the price that is paid, and the items the player is buying
+     * are held for him until the Quote expires
      * @param action The action that has to be confirmed
      * @param plugin The main plugin instance
-     * @return An Inventory where a certain player can confirm the specified action
+     * @return An Inventory where a certain player can confirm the specified action. If the Quote
+     * can't be locked, the Inventory where the player can select another amount
      */
     public Inventory getConfirmGUI(GlobalShopAction action, Plugin plugin) {
-        String word = (action.getType().equals(GlobalShopActionType.BUY_ONE) || action.getType().equals(GlobalShopActionType.BUY_MULTIPLE)) ?
-                "buy" : "sell";
+        if (this.isTradingHalted()) {
+            action.getPlayer().sendMessage(GlobalShopError.TRADING_HALTED.getMessage());
+            return getSpecificItemView(plugin, action.getPlayer());
+        }
+
+        Quote quote = this.lockQuote(action);
+        if (quote == null) {
+            action.getPlayer().sendMessage(action.isBuy() ?
+                    GlobalShopError.NOT_ENOUGH_ITEMS_SELLING.getMessage() : GlobalShopError.INVALID_AMOUNT.getMessage());
+            return getSelectAmountGUI(action, plugin, action.getPlayer());
+        }
+
+        String word = quote.isBuy() ? "buy" : "sell";
 
         return new InventoryFactory(3, "Confirm", plugin)
                 .setClicksAllowed(false)
-                .setItem(13, new ItemStackFactory(new ItemStack(this.getMaterial(), Math.min(64, (int) action.getAmount())))
+                .setItem(13, new ItemStackFactory(new ItemStack(this.getMaterial(), Math.min(64, (int) quote.getAmount())))
                         .setName(StringUtils.formatColorCodes('&', "&aCustom amount"))
                         .addLoreLine(this.getSubtitle())
                         .addBlankLoreLine()
-                        .addLoreLine(StringUtils.formatColorCodes('&', "Amount: &6" + action.getAmount() + "&7x"))
-                        .addLoreLine(StringUtils.formatColorCodes('&', "Price: &6" + action.getPrice() + "$"))
+                        .addLoreLine(StringUtils.formatColorCodes('&', "Amount: &6" + quote.getAmount() + "&7x"))
+                        .addLoreLine(StringUtils.formatColorCodes('&', "Price: &6" + quote.getPrice() + "$"))
+                        .addLoreLine(StringUtils.formatColorCodes('&', "&8Valid for " + Quote.VALIDITY_MILLIS / 1000 + " seconds"))
                         .addBlankLoreLine()
                         .addLoreLine(StringUtils.formatColorCodes('&', "&eClick to " + word))
                         .get())
                 .setAction(13, e -> {
-                    switch (action.getType()) {
-                        case SELL_ONE, SELL_MULTIPLE -> {
-                            new SellCustomAmount(plugin).call(e.getWhoClicked(), getMaterial(), action.getAmount());
-                            this.sellCustomAmount(action.getPlayer(), action.getAmount());
-
-                            /// Remove sold items
-                            /// We must remove from the player Inventory <amount> of Items that have the type <material>
-                            int remainingToRemove = (int) action.getAmount();
-
-                            for (ItemStack itemStack : action.getPlayer().getInventory().getContents()) {
-                                if (itemStack == null || !itemStack.getType().equals(material)) continue;
-
-                                int stackAmount = itemStack.getAmount();
-
-                                if (stackAmount > remainingToRemove) {
-                                    /// Reduce the stack size and finish removal
-                                    itemStack.setAmount(stackAmount - remainingToRemove);
-                                    break;
-                                } else {
-                                    /// Remove the entire stack and continue
-                                    remainingToRemove -= stackAmount;
-                                    action.getPlayer().getInventory().removeItem(itemStack);
-                                }
-
-                                if (remainingToRemove <= 0) break;
-                            }
-                        }
-                        case BUY_ONE, BUY_MULTIPLE -> {
-                            new Buy(plugin).callAsAPlayer(action.getPlayer(), getMaterial().name(), action.getAmount());
-                            this.buyCustomAmount(action.getPlayer(), action.getAmount());
-
-                            /// Securely add the bought items to the player's inventory
-                            ServerPlayer player = ServerPlayer.getPlayer(action.getPlayer());
-                            assert player != null;
-                            for (int i = 0; i < action.getAmount(); i++) {
-                                player.addItemToInventory(new ItemStack(this.getMaterial()));
-                            }
-
-                            action.getPlayer().closeInventory();
-                        }
-                    }
-
+                    this.settle(quote);
                     e.getWhoClicked().closeInventory();
                 })
                 .fill(new ItemStackFactory(Material.BLACK_STAINED_GLASS_PANE)
                         .setName(" ")
                         .get())
-                .setInventoryToShowOnClose(getSelectAmountGUI(action.setPrice(getFinalPrice(action, action.getAmount())), plugin, action.getPlayer()))
+                .setInventoryToShowOnClose(getSelectAmountGUI(action.withAmount(quote.getAmount(), quote.getPrice()), plugin, action.getPlayer()))
                 .get();
     }
 
+    /**
+     * Gets how many items of this type players can still buy, that is the amount on the market
+     * without the items that are held by valid buy Quotes
+     *
+     * @return The amount of items that can be bought right now
+     */
+    public long getAvailableAmount() {
+        this.releaseExpiredQuotes(System.currentTimeMillis());
+        return MarketState.stock[index] - MarketState.reserved[index];
+    }
+
+    /**
+     * Locks the price of the specified action into a Quote. Buy Quotes hold their items, so if more
+     * players try to buy the last items, the first one that locks a Quote gets them.
+     * A player can only have one valid Quote for each GlobalShopItem: locking a new one releases the previous one
+     *
+     * @param action The action to lock the price of
+     * @return The locked Quote, or null if the amount is invalid, there aren't enough items to buy, trading is halted
+     * or the Material is not sold anymore
+     */
+    @Nullable
+    public Quote lockQuote(GlobalShopAction action) {
+        long now = System.currentTimeMillis();
+        if (this.circuitBreaker.isHalted(now) || !GlobalShop.canSell(this.material)) return null;
+        this.releaseExpiredQuotes(now);
+
+        UUID player = action.getPlayer().getUniqueId();
+        Quote previous = this.quotesByPlayer.get(player);
+        if (previous != null) this.releaseQuote(previous);
+
+        if (action.getAmount() <= 0) return null;
+        if (action.isBuy() && action.getAmount() > MarketState.stock[index] - MarketState.reserved[index]) return null;
+
+        Money price = action.isBuy() ? this.getCumulativeBuyPrice(action.getAmount()) : this.getCumulativeSellPrice(action.getAmount());
+        Quote quote = new Quote(this.material, action.getType(), action.getAmount(), price, player, now);
+
+        this.quotes.put(quote.getId(), quote);
+        this.quotesByPlayer.put(player, quote);
+        if (quote.isBuy()) MarketState.reserved[index] += quote.getAmount();
+        else this.pendingSellAmount += quote.getAmount();
+        MarketState.version[index]++;
+
+        return quote;
+    }
+
+    /**
+     * Confirms a Quote: moves the items and the money at the locked price. If the Quote is
+     * not valid anymore, or the player can't complete it, nothing happens and the player is told why
+     *
+     * @param quote The Quote to confirm
+     * @return true if the trade was completed, false if it wasn't
+     */
+    public boolean settle(Quote quote) {
+        Player player = quote.getPlayer();
+        if (player == null) return false;
+
+        this.releaseExpiredQuotes(System.currentTimeMillis());
+        if (!this.quotes.containsKey(quote.getId())) {
+            player.sendMessage(GlobalShopError.QUOTE_EXPIRED.getMessage());
+            return false;
+        }
+        this.releaseQuote(quote);
+
+        /// Quotes locked before the halt can't be confirmed during it either
+        if (this.isTradingHalted()) {
+            player.sendMessage(GlobalShopError.TRADING_HALTED.getMessage());
+            return false;
+        }
+
+        ServerPlayer serverPlayer = ServerPlayer.getPlayer(player);
+        assert serverPlayer != null;
+
+        if (quote.isBuy()) {
+            if (serverPlayer.getMoney().isLowerThan(quote.getPrice())) {
+                player.sendMessage(ShopError.NOT_ENOUGH_MONEY.getMessage());
+                return false;
+            }
+
+            this.completeBuy(player, quote.getAmount(), quote.getPrice());
+
+            /// Securely add the bought items to the player's inventory
+            for (int i = 0; i < quote.getAmount(); i++) {
+                serverPlayer.addItemToInventory(new ItemStack(this.getMaterial()));
+            }
+        } else {
+            if (getPresenceInPlayerInventory(player) < quote.getAmount()) {
+                player.sendMessage(GlobalShopError.NOT_ENOUGH_ITEMS.getMessage());
+                return false;
+            }
+
+            this.completeSell(player, quote.getAmount(), quote.getPrice());
+            this.removeFromInventory(player, quote.getAmount());
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the specified amount of items of this type from the specified player's inventory
+     *
+     * @param player The player to remove the items from
+     * @param amount The amount of items to remove
+     */
+    public void removeFromInventory(Player player, long amount) {
+        /// We must remove from the player Inventory <amount> of Items that have the type <material>
+        long remainingToRemove = amount;
+
+        for (ItemStack itemStack : player.getInventory().getContents()) {
+            if (itemStack == null || !itemStack.getType().equals(material)) continue;
+
+            int stackAmount = itemStack.getAmount();
+
+            if (stackAmount > remainingToRemove) {
+                /// Reduce the stack size and finish removal
+                itemStack.setAmount(stackAmount - (int) remainingToRemove);
+                break;
+            } else {
+                /// Remove the entire stack and continue
+                remainingToRemove -= stackAmount;
+                player.getInventory().removeItem(itemStack);
+            }
+
+            if (remainingToRemove <= 0) break;
+        }
+    }
+
+    /**
+     * Stops holding the items of a Quote, that can't be confirmed anymore
+     *
+     * @param quote The Quote to release
+     */
+    private void releaseQuote(Quote quote) {
+        if (this.quotes.remove(quote.getId()) == null) return;
+        this.quotesByPlayer.remove(quote.getPlayerUniqueID(), quote);
+
+        if (quote.isBuy()) MarketState.reserved[index] -= quote.getAmount();
+        else this.pendingSellAmount -= quote.getAmount();
+        MarketState.version[index]++;
+    }
+
+    /**
+     * Stops every trade that is waiting on this GlobalShopItem, once its Material is not sold anymore:
+     * its Quotes are released and its Orders are cancelled, giving back what they hold. See GlobalShop#applyCatalog()
+     */
+    void delist() {
+        while (!this.quotes.isEmpty()) this.releaseQuote(this.quotes.values().iterator().next());
+        this.orderBook.cancelAll();
+    }
+
+    /**
+     * Releases every expired Quote. Quotes expire in the order they were locked, so only
+     * the oldest ones have to be checked
+     *
+     * @param now The current time, in milliseconds
+     */
+    private void releaseExpiredQuotes(long now) {
+        while (!this.quotes.isEmpty()) {
+            Quote oldest = this.quotes.values().iterator().next();
+            if (!oldest.isExpired(now)) return;
+            this.releaseQuote(oldest);
+        }
+    }
+
     /**
      * Gets a string, that contains this GlobalShopItem type, that can be displayed under the object as a lore line
      * @return The subtitle to show under the ItemStack of this GlobalShopItem type
@@ -5,7 +5,12 @@ import io.github.toniidev.toniishops.extendable.GlobalShopAction;
 import org.bukkit.entity.Player;
 
 public class GlobalShopSell extends GlobalShopAction {
-    public GlobalShopSell(boolean multiple, long amount, Player player, double price) {
+    public GlobalShopSell(boolean multiple, long amount, Player player, Money price) {
         super((multiple ? GlobalShopActionType.SELL_MULTIPLE : GlobalShopActionType.SELL_ONE), amount, player, price);
     }
+
+    @Override
+    public GlobalShopAction withAmount(long amount, Money price) {
+        return new GlobalShopSell(this.getType().equals(GlobalShopActionType.SELL_MULTIPLE), amount, this.getPlayer(), price);
+    }
 }
@@ -0,0 +1,34 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.extendable.TabulatedPricingCurve;
+import io.github.toniidev.toniishops.utils.NumberUtils;
+
+/**
+ * The original Global Shop curve: basePrice / (1 + n / scale).
+ * The price halves every time the amount on the market grows by scale.
+ */
+public class HyperbolicPricingCurve extends TabulatedPricingCurve {
+    private final long scale;
+
+    /**
+     * Creates a hyperbolic PricingCurve
+     *
+     * @param scale     The amount on the market at which the price is half of the base price
+     * @param buyMargin The value the sell price is multiplied by to get the buy price
+     */
+    public HyperbolicPricingCurve(long scale, double buyMargin) {
+        super(buyMargin);
+        this.scale = scale;
+    }
+
+    @Override
+    protected double computeFactor(long amountOnTheMarket) {
+        return scale / (double) (scale + amountOnTheMarket);
+    }
+
+    @Override
+    protected double computeFactorSum(long fromAmount, long count) {
+        /// scale / (scale + n) summed over n is scale * (H(scale - 1 + from + count) - H(scale - 1 + from))
+        return scale * NumberUtils.harmonicDifference(scale - 1 + fromAmount, scale - 1 + fromAmount + count);
+    }
+}
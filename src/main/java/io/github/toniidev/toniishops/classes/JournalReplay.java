@@ -0,0 +1,215 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Material;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the state of the Global Shop market from the trade journal when the plugin is enabled:
+ * the amount on the market, the buy and sell history and the candles of every GlobalShopItem,
+ * and the TradeStats and the balance of every player.
+ * <p>
+ * It happens in two parallel phases. First every segment is decoded on its own thread, and its records
+ * are split by Material into primitive partitions. Then the partitions of each Material are applied on
+ * their own thread, segment after segment, so the records of a Material are applied in the order they
+ * were written, while different Materials never touch the same state. The TradeStats and the balances are
+ * shared by every Material, so they are rebuilt afterwards on the calling thread. Each trade changes the balance
+ * of its player by its price, so that a crash doesn't give back the money of the trades after the snapshot, and
+ * the Orders placed and cancelled after it are placed and cancelled again, with the money they hold.
+ */
+public class JournalReplay {
+    private static final int MATERIALS = Material.values().length;
+
+    /**
+     * The records of one Material in one segment, in parallel primitive arrays
+     */
+    private static final class Partition {
+        private long[] time = new long[16];
+        private int[] kind = new int[16];
+        private long[] playerMost = new long[16];
+        private long[] playerLeast = new long[16];
+        private long[] amount = new long[16];
+        private long[] price = new long[16];
+        private long[] stockAfter = new long[16];
+        private int size = 0;
+
+        void add(long time, int kind, long playerMost, long playerLeast, long amount, long price, long stockAfter) {
+            if (size == this.time.length) {
+                int capacity = size * 2;
+                this.time = Arrays.copyOf(this.time, capacity);
+                this.kind = Arrays.copyOf(this.kind, capacity);
+                this.playerMost = Arrays.copyOf(this.playerMost, capacity);
+                this.playerLeast = Arrays.copyOf(this.playerLeast, capacity);
+                this.amount = Arrays.copyOf(this.amount, capacity);
+                this.price = Arrays.copyOf(this.price, capacity);
+                this.stockAfter = Arrays.copyOf(this.stockAfter, capacity);
+            }
+
+            this.time[size] = time;
+            this.kind[size] = kind;
+            this.playerMost[size] = playerMost;
+            this.playerLeast[size] = playerLeast;
+            this.amount[size] = amount;
+            this.price[size] = price;
+            this.stockAfter[size] = stockAfter;
+            size++;
+        }
+    }
+
+    /**
+     * Replays the records of a journal from a location on the GlobalShopItems of GlobalShop.shop.
+     * It must be called on the main thread, after the shop has been initialized (and a MarketSnapshot
+     * restored, if there is one) and before anything is traded
+     *
+     * @param directory The directory of the journal
+     * @param from      The location of the first record to replay, like MarketSnapshot#getLocation(), or 0 to replay everything
+     * @param threads   How many threads decode and apply the records
+     * @return The amount of records that were replayed
+     * @throws IOException If a segment can't be read
+     */
+    public static long replay(File directory, long from, int threads) throws IOException {
+        GlobalShopItem[] items = new GlobalShopItem[MATERIALS];
+        for (GlobalShopItem item : GlobalShop.shop) items[item.getMaterial().ordinal()] = item;
+
+        /// Segments before the one of the first record are entirely covered by the snapshot
+        List<File> segments = new ArrayList<>();
+        for (File segment : TradeJournal.getSegments(directory)) {
+            if (TradeJournal.getSequence(segment) >= from >>> 32) segments.add(segment);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            /// Decode every segment into per-Material partitions
+            List<Future<Partition[]>> decoding = new ArrayList<>();
+            for (File segment : segments) {
+                int skip = TradeJournal.getSequence(segment) == from >>> 32 ? (int) from : 0;
+                decoding.add(pool.submit(() -> decode(directory, segment, skip)));
+            }
+
+            Partition[][] decoded = new Partition[segments.size()][];
+            for (int i = 0; i < decoded.length; i++) decoded[i] = decoding.get(i).get();
+
+            /// Apply the partitions of each Material, in segment order, on top of the snapshot
+            List<Future<Long>> applying = new ArrayList<>();
+            for (int material = 0; material < MATERIALS; material++) {
+                GlobalShopItem item = items[material];
+                if (item == null) continue;
+
+                int ordinal = material;
+                applying.add(pool.submit(() -> apply(item, ordinal, decoded)));
+            }
+
+            long value = 0;
+            for (Future<Long> future : applying) value += future.get();
+
+            /// How much the trades changed the balance of each player, in cents
+            Map<UUID, Long> balances = new HashMap<>();
+            for (int material = 0; material < MATERIALS; material++) {
+                for (Partition[] segment : decoded) {
+                    Partition partition = segment[material];
+                    if (partition == null) continue;
+
+                    for (int i = 0; i < partition.size; i++) {
+                        TradeKind kind = TradeKind.fromOrdinal(partition.kind[i]);
+                        if (kind == null || kind == TradeKind.STOCK) continue;
+                        UUID player = new UUID(partition.playerMost[i], partition.playerLeast[i]);
+
+                        if (kind.isOrderChange()) {
+                            if (items[material] == null) continue;
+                            balances.merge(player, items[material].getOrderBook().replayOrder(kind, player, partition.stockAfter[i],
+                                    partition.amount[i], partition.price[i], partition.time[i]), Long::sum);
+                            continue;
+                        }
+                        TradeStats.record(kind, material, player, partition.amount[i], partition.price[i], partition.time[i]);
+                        if (!kind.isPlayerShop() && kind != TradeKind.MATCH_SELL) {
+                            CategoryView.recordVolume(material, partition.amount[i], partition.time[i]);
+                        }
+
+                        long change = switch (kind) {
+                            case ORDER_BUY, ORDER_SELL, MATCH_BUY, MATCH_SELL -> items[material] == null
+                                    ? (kind.isBuy() ? -partition.price[i] : partition.price[i])
+                                    : items[material].getOrderBook().replayFill(player, kind.isBuy(), partition.amount[i], partition.price[i]);
+                            default -> kind.isBuy() ? -partition.price[i] : partition.price[i];
+                        };
+                        balances.merge(player, change, Long::sum);
+                    }
+                }
+            }
+
+            Map<UUID, ServerPlayer> players = new HashMap<>();
+            for (ServerPlayer player : ServerPlayer.serverPlayers) players.put(player.getUniqueId(), player);
+            for (Map.Entry<UUID, Long> entry : balances.entrySet()) {
+                ServerPlayer player = players.get(entry.getKey());
+                /// Players that first traded after the snapshot started from the starting balance
+                if (player == null) {
+                    player = new ServerPlayer(entry.getKey(), ServerPlayer.STARTING_MONEY);
+                    ServerPlayer.serverPlayers.add(player);
+                }
+                player.addMoney(Money.ofCents(entry.getValue()));
+            }
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Journal replay interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Journal replay failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Partition[] decode(File directory, File segment, int skip) throws IOException {
+        Partition[] value = new Partition[MATERIALS];
+        TradeJournal.scan(directory, segment, (position, time, kind, material, playerMost, playerLeast,
+                                               amount, price, stockAfter) -> {
+            if (position < skip || material == -1) return;
+            if (value[material] == null) value[material] = new Partition();
+            value[material].add(time, kind, playerMost, playerLeast, amount, price, stockAfter);
+        });
+        return value;
+    }
+
+    private static long apply(GlobalShopItem item, int material, Partition[][] decoded) {
+        long value = 0;
+        long stock = -1;
+
+        for (Partition[] segment : decoded) {
+            Partition partition = segment[material];
+            if (partition == null) continue;
+
+            for (int i = 0; i < partition.size; i++) {
+                TradeKind kind = TradeKind.fromOrdinal(partition.kind[i]);
+                if (kind == null) continue;
+                value++;
+
+                switch (kind) {
+                    case GLOBAL_BUY, ORDER_BUY, MATCH_BUY -> item.getBuyTradeHistory().add(partition.time[i],
+                            partition.playerMost[i], partition.playerLeast[i], partition.amount[i], partition.price[i]);
+                    case GLOBAL_SELL, ORDER_SELL, MATCH_SELL -> item.getSellTradeHistory().add(partition.time[i],
+                            partition.playerMost[i], partition.playerLeast[i], partition.amount[i], partition.price[i]);
+                }
+
+                /// Player shops and orders being placed or cancelled don't change the market
+                if (kind.isPlayerShop() || kind.isOrderChange()) continue;
+                stock = partition.stockAfter[i];
+
+                CandleSeries.record(kind, item.getMaterial(), partition.time[i], partition.price[i], partition.amount[i],
+                        partition.stockAfter[i]);
+            }
+        }
+
+        if (stock >= 0) item.setAmountOnTheMarket(stock);
+        return value;
+    }
+}
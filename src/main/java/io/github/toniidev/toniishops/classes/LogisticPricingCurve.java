@@ -0,0 +1,28 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.extendable.TabulatedPricingCurve;
+
+/**
+ * Logistic curve: basePrice * 2 / (1 + e^(n / steepness)).
+ * The price stays close to the base price while the market is almost empty, then it
+ * falls quickly and flattens again when the market is flooded.
+ */
+public class LogisticPricingCurve extends TabulatedPricingCurve {
+    private final double steepness;
+
+    /**
+     * Creates a logistic PricingCurve
+     *
+     * @param steepness How many items it takes for the curve to change noticeably. Lower values make it steeper
+     * @param buyMargin The value the sell price is multiplied by to get the buy price
+     */
+    public LogisticPricingCurve(double steepness, double buyMargin) {
+        super(buyMargin);
+        this.steepness = steepness;
+    }
+
+    @Override
+    protected double computeFactor(long amountOnTheMarket) {
+        return 2.0 / (1.0 + Math.exp(amountOnTheMarket / steepness));
+    }
+}
@@ -0,0 +1,383 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.CandleResolution;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compact copy of the whole state the trade journal would otherwise have to rebuild: the amount
+ * on the market, the target, the buy and sell history and the candles of every GlobalShopItem,
+ * the TradeStats of every player, the balance of every ServerPlayer and the open Orders, with the money and
+ * the items they hold, so that a restart doesn't lose them. It also stores the journal
+ * location it was taken at, so that on startup only the records after it are replayed, however long
+ * the server has been running.
+ * <p>
+ * A snapshot is captured on the main thread, copying only the trades and candles that are stored and
+ * not the whole capacity of their buffers, and written by another thread. Once it is on disk, the previous snapshot is kept as a fallback, and the journal segments
+ * the previous snapshot doesn't need are moved to the ARCHIVE_DIRECTORY, so replay and the TradeIndex only
+ * ever see the newest segments.
+ * <p>
+ * The items stashed for each ServerPlayer are not part of a snapshot: items that were given to a player who
+ * was offline or had no room for them, like the fills of his buy orders, are lost when the server stops if he
+ * didn't collect them from /stashed.
+ * <p>
+ * The file starts with magic (int), format version (int), Materials hash (long), creation time (long) and
+ * journal location (long), and ends with the CRC32 of everything before it (int).
+ */
+public class MarketSnapshot {
+    /**
+     * How often a snapshot is taken, in server ticks (20 ticks = 1 second)
+     */
+    public static final long SNAPSHOT_PERIOD = 20 * 60 * 10;
+    public static final String FILE_NAME = "snapshot.dat";
+    public static final String PREVIOUS_FILE_NAME = "snapshot.old";
+    public static final String ARCHIVE_DIRECTORY = "archive";
+
+    private static final int MAGIC = 0x54534E50;
+    /// Version 1 snapshots have no Orders, and are still read
+    private static final int FORMAT_VERSION = 2;
+    private static final Material[] MATERIALS = Material.values();
+    private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+
+    private final long created;
+    private final long location;
+    /// The state of each GlobalShopItem, in parallel arrays
+    private final int[] materials;
+    private final long[] stock;
+    private final long[] target;
+    private final TradeHistory[] buyHistory;
+    private final TradeHistory[] sellHistory;
+    private final CandleSeries[][] candles;
+    private final List<TradeStats.PlayerStats> stats;
+    /// (UUID most, UUID least, balance in cents) triples
+    private final long[] balances;
+    private final List<Order> orders;
+
+    private MarketSnapshot(long created, long location, int items, List<TradeStats.PlayerStats> stats, long[] balances,
+                           List<Order> orders) {
+        this.created = created;
+        this.location = location;
+        this.materials = new int[items];
+        this.stock = new long[items];
+        this.target = new long[items];
+        this.buyHistory = new TradeHistory[items];
+        this.sellHistory = new TradeHistory[items];
+        this.candles = new CandleSeries[items][];
+        this.stats = stats;
+        this.balances = balances;
+        this.orders = orders;
+    }
+
+    /**
+     * Copies the current state. It must be called on the main thread, and everything recorded in the
+     * journal after the returned snapshot is after its location
+     *
+     * @param journal The journal trades are appended to
+     * @return The snapshot
+     */
+    public static MarketSnapshot capture(TradeJournal journal) {
+        long[] balances = new long[ServerPlayer.serverPlayers.size() * 3];
+        for (int i = 0; i < ServerPlayer.serverPlayers.size(); i++) {
+            ServerPlayer player = ServerPlayer.serverPlayers.get(i);
+            balances[i * 3] = player.getUniqueId().getMostSignificantBits();
+            balances[i * 3 + 1] = player.getUniqueId().getLeastSignificantBits();
+            balances[i * 3 + 2] = player.getMoney().getCents();
+        }
+
+        MarketSnapshot value = new MarketSnapshot(System.currentTimeMillis(), journal.getNextLocation(),
+                GlobalShop.shop.size(), TradeStats.copy(), balances, OrderBook.copyOrders());
+
+        for (int i = 0; i < GlobalShop.shop.size(); i++) {
+            GlobalShopItem item = GlobalShop.shop.get(i);
+            int material = item.getMaterial().ordinal();
+
+            value.materials[i] = material;
+            value.stock[i] = item.getAmountOnTheMarket();
+            value.target[i] = MarketState.getTarget(item.getMaterial());
+            value.buyHistory[i] = item.getBuyTradeHistory().copy();
+            value.sellHistory[i] = item.getSellTradeHistory().copy();
+
+            CandleSeries[] series = CandleSeries.get(material);
+            if (series != null) {
+                value.candles[i] = new CandleSeries[series.length];
+                for (int j = 0; j < series.length; j++) value.candles[i][j] = series[j].copy();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Writes this snapshot, keeping the one it replaces as the previous snapshot. It can be called
+     * from any thread. The file is written under another name first, so a crash never leaves half a snapshot behind
+     *
+     * @param directory The directory of the journal
+     * @return The journal location of the snapshot that became the previous one, or -1 if there was none
+     * @throws IOException If the snapshot can't be written
+     */
+    public long write(File directory) throws IOException {
+        synchronized (MarketSnapshot.class) {
+            File file = new File(directory, FILE_NAME);
+            File temporary = new File(directory, FILE_NAME + ".tmp");
+
+            try (FileOutputStream stream = new FileOutputStream(temporary)) {
+                CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream, 64 * 1024), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                this.write(out);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                stream.getFD().sync();
+            }
+
+            long previous = -1;
+            if (file.exists()) {
+                previous = readLocation(file);
+                Files.move(file.toPath(), new File(directory, PREVIOUS_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return previous;
+        }
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(TradeJournal.MATERIALS_HASH);
+        out.writeLong(created);
+        out.writeLong(location);
+
+        out.writeInt(materials.length);
+        for (int i = 0; i < materials.length; i++) {
+            out.writeInt(materials[i]);
+            out.writeLong(stock[i]);
+            out.writeLong(target[i]);
+            buyHistory[i].write(out);
+            sellHistory[i].write(out);
+
+            out.writeBoolean(candles[i] != null);
+            if (candles[i] != null) {
+                for (CandleSeries series : candles[i]) series.write(out);
+            }
+        }
+
+        out.writeInt(stats.size());
+        for (TradeStats.PlayerStats player : stats) player.write(out);
+
+        out.writeInt(balances.length / 3);
+        for (long value : balances) out.writeLong(value);
+
+        out.writeInt(orders.size());
+        for (Order order : orders) order.write(out);
+    }
+
+    /**
+     * Reads the newest valid snapshot of a journal. If the last one is damaged, the previous one is read
+     *
+     * @param directory The directory of the journal
+     * @return The snapshot, or null if there is no valid snapshot
+     */
+    @Nullable
+    public static MarketSnapshot read(File directory) {
+        for (String name : new String[]{FILE_NAME, PREVIOUS_FILE_NAME}) {
+            File file = new File(directory, name);
+            if (!file.exists()) continue;
+
+            try {
+                MarketSnapshot value = read(directory, file);
+                if (value != null) return value;
+                Bukkit.getLogger().warning("The market snapshot " + name + " is damaged or can't be read, skipping it.");
+            } catch (IOException e) {
+                Bukkit.getLogger().warning("Could not read the market snapshot " + name + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static MarketSnapshot read(File directory, File file) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024), new CRC32())) {
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) return null;
+            int version = in.readInt();
+            if (version < 1 || version > FORMAT_VERSION) return null;
+
+            int[] table = TradeJournal.getMaterialTable(directory, in.readLong());
+            if (table.length == 0) return null;
+            long created = in.readLong();
+            long location = in.readLong();
+
+            int items = in.readInt();
+            int[] materials = new int[items];
+            long[] stock = new long[items];
+            long[] target = new long[items];
+            TradeHistory[] buyHistory = new TradeHistory[items];
+            TradeHistory[] sellHistory = new TradeHistory[items];
+            CandleSeries[][] candles = new CandleSeries[items][];
+            for (int i = 0; i < items; i++) {
+                int material = in.readInt();
+                materials[i] = material >= 0 && material < table.length ? table[material] : -1;
+                stock[i] = in.readLong();
+                target[i] = in.readLong();
+                buyHistory[i] = new TradeHistory(TradeHistory.DEFAULT_CAPACITY);
+                buyHistory[i].read(in);
+                sellHistory[i] = new TradeHistory(TradeHistory.DEFAULT_CAPACITY);
+                sellHistory[i].read(in);
+
+                if (in.readBoolean()) {
+                    candles[i] = new CandleSeries[RESOLUTIONS.length];
+                    for (int j = 0; j < RESOLUTIONS.length; j++) candles[i][j] = CandleSeries.read(in, RESOLUTIONS[j]);
+                }
+            }
+
+            int players = in.readInt();
+            List<TradeStats.PlayerStats> stats = new ArrayList<>(players);
+            for (int i = 0; i < players; i++) stats.add(TradeStats.PlayerStats.read(in, table));
+
+            long[] balances = new long[in.readInt() * 3];
+            for (int i = 0; i < balances.length; i++) balances[i] = in.readLong();
+
+            List<Order> orders = new ArrayList<>();
+            if (version >= 2) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) orders.add(Order.read(in, table, MATERIALS));
+            }
+
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) return null;
+
+            MarketSnapshot value = new MarketSnapshot(created, location, items, stats, balances, orders);
+            System.arraycopy(materials, 0, value.materials, 0, items);
+            System.arraycopy(stock, 0, value.stock, 0, items);
+            System.arraycopy(target, 0, value.target, 0, items);
+            System.arraycopy(buyHistory, 0, value.buyHistory, 0, items);
+            System.arraycopy(sellHistory, 0, value.sellHistory, 0, items);
+            System.arraycopy(candles, 0, value.candles, 0, items);
+            return value;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /// Reads only the journal location in the header of a snapshot file
+    private static long readLocation(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != MAGIC) return -1;
+            int version = in.readInt();
+            if (version < 1 || version > FORMAT_VERSION) return -1;
+            in.readLong();
+            in.readLong();
+            return in.readLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Applies this snapshot. It must be called on the main thread, after the shop has been
+     * initialized and before anything is traded. Items that are not sold anymore are skipped
+     */
+    public void restore() {
+        for (int i = 0; i < materials.length; i++) {
+            if (materials[i] == -1) continue;
+            Material material = MATERIALS[materials[i]];
+            GlobalShopItem item = GlobalShop.getItem(material);
+            if (item == null) continue;
+
+            item.setAmountOnTheMarket(stock[i]);
+            MarketState.setTarget(material, target[i]);
+            item.getBuyTradeHistory().copyFrom(buyHistory[i]);
+            item.getSellTradeHistory().copyFrom(sellHistory[i]);
+            if (candles[i] != null) CandleSeries.set(materials[i], candles[i]);
+        }
+
+        TradeStats.restore(stats);
+
+        Map<UUID, ServerPlayer> players = new HashMap<>();
+        for (ServerPlayer player : ServerPlayer.serverPlayers) players.put(player.getUniqueId(), player);
+        for (int i = 0; i < balances.length; i += 3) {
+            UUID uuid = new UUID(balances[i], balances[i + 1]);
+            ServerPlayer player = players.get(uuid);
+            /// Players that are online already have a balance, which is the one the server had when they joined
+            if (player == null) ServerPlayer.serverPlayers.add(new ServerPlayer(uuid, balances[i + 2]));
+            else player.setMoney(Money.ofCents(balances[i + 2]));
+        }
+
+        /// The balances don't include what the Orders hold, so the Orders go back on their books after them
+        OrderBook.restore(orders);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The journal location the snapshot was taken at. Only the records at or after it have to be replayed
+     */
+    public long getLocation() {
+        return location;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return When the snapshot was taken, in milliseconds
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * Captures a snapshot now, writes it off the main thread and then archives the journal segments
+     * the previous snapshot doesn't need anymore. It must be called on the main thread
+     *
+     * @param plugin  The main plugin instance
+     * @param journal The journal trades are appended to
+     */
+    public static void save(Plugin plugin, TradeJournal journal) {
+        MarketSnapshot snapshot = capture(journal);
+        File directory = journal.getDirectory();
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                long previous;
+                try {
+                    previous = snapshot.write(directory);
+                } catch (IOException e) {
+                    Bukkit.getLogger().warning("Could not write the market snapshot: " + e.getMessage());
+                    return;
+                }
+                if (previous == -1) return;
+
+                /// Segments are only archived once both snapshots are past them, so the previous one can still be replayed
+                long before = previous >>> 32;
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        if (TradeRecorder.getJournal() != journal) return;
+                        try {
+                            if (journal.archive(before, new File(directory, ARCHIVE_DIRECTORY)) == 0) return;
+                        } catch (IOException e) {
+                            Bukkit.getLogger().warning("Could not archive the old trade journal segments: " + e.getMessage());
+                        }
+
+                        TradeIndex index = TradeRecorder.getIndex();
+                        if (index != null) index.forget(before);
+                    }
+                }.runTask(plugin);
+            }
+        }.runTaskAsynchronously(plugin);
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.toniidev.toniishops.classes;
+
+/**
+ * Computes the margin the Global Shop applies on top of the sell price of a GlobalShopItem
+ * when players buy it. The margin is not fixed: it is based on how much the item is traded
+ * and on how much its price moves.
+ * - Items that are traded a lot (liquid) get a margin close to MIN_MARGIN
+ * - Items that are rarely traded (illiquid) get the base margin of their PricingCurve
+ * - Items whose price jumps a lot on every trade get an extra margin on top of that
+ * Both statistics are exponentially weighted moving averages, stored in primitive fields
+ * and updated in constant time on every trade, so no history has to be scanned.
+ * Both also fade away with time: the volume of an item that is not traded anymore, so that the spread
+ * widens again as liquidity dries up, and the volatility, so that a volatile period does not keep the
+ * spread wide once the price is stable again.
+ * The margin changes when the item is traded, and when the market tick applies this fading.
+ * The tick only applies it once the margin moves by at least MIN_MARGIN_STEP, so quotes stay the same
+ * between two trades unless the margin really changed. Until then the statistics are left untouched,
+ * so they never drift apart from the margin.
+ */
+public class MarketSpread {
+    /// The margin of the most liquid items, when their price is stable
+    private static final double MIN_MARGIN = 1.02;
+    /// No item is ever sold for more than this margin
+    private static final double MAX_MARGIN = 2.0;
+    /// The share of the base margin that the most liquid items still pay
+    private static final double MIN_BASE_SHARE = 0.2;
+    /// The traded volume (in the last VOLUME_HALF_LIFE_MILLIS) at which an item is considered half liquid
+    private static final double HALF_LIQUID_VOLUME = 640;
+    /// The traded volume counts half after this time
+    private static final double VOLUME_HALF_LIFE_MILLIS = 60 * 60 * 1000;
+    /// How much the volatility average follows the last trade
+    private static final double VOLATILITY_ALPHA = 0.1;
+    /// The volatility fades towards 0, a stable price, and counts half after this time
+    private static final double VOLATILITY_HALF_LIFE_MILLIS = 6 * 60 * 60 * 1000;
+    /// The extra margin for each unit of average relative price move per trade
+    private static final double VOLATILITY_WEIGHT = 2.0;
+    /// The smallest change of the margin that the market tick applies
+    private static final double MIN_MARGIN_STEP = 0.0001;
+
+    private double baseMargin;
+    private double volume = 0.0;
+    private double volatility = 0.0;
+    /// When the statistics were last faded, in milliseconds, or 0 if the item was never traded
+    private long lastUpdate = 0;
+    private double margin;
+
+    /**
+     * Creates a MarketSpread for an item that was never traded, whose margin is the base margin
+     *
+     * @param baseMargin The margin of the PricingCurve of the item
+     */
+    public MarketSpread(double baseMargin) {
+        this.baseMargin = baseMargin;
+        this.margin = baseMargin;
+    }
+
+    /**
+     * Updates the statistics with a trade and computes the new margin
+     *
+     * @param amount      The amount of items traded
+     * @param factorFrom  The PricingCurve factor of the item before the trade
+     * @param factorTo    The PricingCurve factor of the item after the trade
+     * @param now         The time of the trade, in milliseconds
+     */
+    public void record(long amount, double factorFrom, double factorTo, long now) {
+        this.fade(now);
+        volume += amount;
+
+        if (factorFrom > 0 && factorTo > 0) {
+            double move = Math.abs(Math.log(factorTo / factorFrom));
+            volatility += VOLATILITY_ALPHA * (move - volatility);
+        }
+
+        margin = this.computeMargin(volume, volatility);
+    }
+
+    /**
+     * Lets the volume and the volatility fade away up to now and updates the margin if the item became
+     * less liquid or more stable. It runs on every market tick, so the margin of an item that stops being
+     * traded goes back to the base margin of its PricingCurve.
+     * If the margin would move by less than MIN_MARGIN_STEP nothing is changed, and the next tick fades
+     * from the same point in time
+     *
+     * @param now The current time, in milliseconds
+     * @return true if the margin changed
+     */
+    public boolean decay(long now) {
+        if (lastUpdate == 0) return false;
+        long elapsed = Math.max(0, now - lastUpdate);
+        double fadedVolume = volume * Math.pow(0.5, elapsed / VOLUME_HALF_LIFE_MILLIS);
+        double fadedVolatility = volatility * Math.pow(0.5, elapsed / VOLATILITY_HALF_LIFE_MILLIS);
+
+        double value = this.computeMargin(fadedVolume, fadedVolatility);
+        if (Math.abs(value - margin) < MIN_MARGIN_STEP) return false;
+
+        volume = fadedVolume;
+        volatility = fadedVolatility;
+        lastUpdate = now;
+        margin = value;
+        return true;
+    }
+
+    /// The statistics fade away with time, so that an item that is not traded anymore becomes illiquid again
+    /// and an item whose price is stable again is not volatile anymore
+    private void fade(long now) {
+        if (lastUpdate != 0) {
+            long elapsed = Math.max(0, now - lastUpdate);
+            volume *= Math.pow(0.5, elapsed / VOLUME_HALF_LIFE_MILLIS);
+            volatility *= Math.pow(0.5, elapsed / VOLATILITY_HALF_LIFE_MILLIS);
+        }
+        lastUpdate = now;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The margin to multiply the sell price by to get the buy price
+     */
+    public double getMargin() {
+        return margin;
+    }
+
+    /**
+     * Default setter for this class. It is used when the PricingCurve of the item changes
+     *
+     * @param value The margin of the new PricingCurve
+     */
+    public void setBaseMargin(double value) {
+        this.baseMargin = value;
+        margin = this.computeMargin(volume, volatility);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The decayed amount of items traded recently
+     */
+    public double getVolume() {
+        return volume;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The average relative price move caused by one trade
+     */
+    public double getVolatility() {
+        return volatility;
+    }
+
+    private double computeMargin(double volume, double volatility) {
+        double liquidity = volume / (volume + HALF_LIQUID_VOLUME);
+        double baseShare = MIN_BASE_SHARE + (1 - MIN_BASE_SHARE) * (1 - liquidity);
+        double value = 1 + (baseMargin - 1) * baseShare + VOLATILITY_WEIGHT * volatility;
+        return Math.max(MIN_MARGIN, Math.min(MAX_MARGIN, value));
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.toniidev.toniishops.classes;
+
+import org.bukkit.Material;
+
+/**
+ * The state of the whole Global Shop market, stored as primitive arrays indexed by
+ * Material#ordinal() instead of being spread across the GlobalShopItem instances.
+ * This way the market tick can walk every item of the catalog in a single pass over
+ * contiguous memory, without allocating anything.
+ * GlobalShopItem reads and writes its own slot of these arrays.
+ */
+public class MarketState {
+    /**
+     * How often the market tick runs, in server ticks (20 ticks = 1 second)
+     */
+    public static final long TICK_PERIOD = 1200;
+
+    /**
+     * The share of the distance between the amount on the market and its target
+     * that gets covered on every market tick, unless a Material has its own rate
+     */
+    public static final double DEFAULT_REVERSION_RATE = 0.05;
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final int SIZE = MATERIALS.length;
+
+    /// The amount of items on the market
+    static final long[] stock = new long[SIZE];
+    /// The base price, in cents. See Money
+    static final long[] basePrice = new long[SIZE];
+    /// The amount of items the market tends to on every tick
+    static final long[] target = new long[SIZE];
+    /// The share of the distance to the target covered on every tick
+    static final double[] reversionRate = new double[SIZE];
+    /// Changes every time the amount on the market or the pricing of the item changes. See QuoteCache
+    static final long[] version = new long[SIZE];
+    /// Items held by valid buy Quotes, that the market tick must never take away
+    static final long[] reserved = new long[SIZE];
+
+    /// The ordinals of the Materials that are sold on the Global Shop, so that the tick skips the other ones
+    private static final int[] listed = new int[SIZE];
+    private static final boolean[] isListed = new boolean[SIZE];
+    private static int listedCount = 0;
+
+    /**
+     * Adds a Material to the market. Its target is the starting amount of items
+     *
+     * @param material The Material to add
+     * @param amount   The starting amount of items on the market
+     * @param price    The base price of the Material
+     */
+    static void register(Material material, long amount, Money price) {
+        int i = material.ordinal();
+
+        stock[i] = amount;
+        basePrice[i] = price.getCents();
+        target[i] = amount;
+        reversionRate[i] = DEFAULT_REVERSION_RATE;
+        reserved[i] = 0;
+        version[i]++;
+
+        if (!isListed[i]) {
+            isListed[i] = true;
+            listed[listedCount++] = i;
+        }
+    }
+
+    /**
+     * Moves the amount on the market of every listed Material toward its target by its
+     * reversion rate. Sold-out items slowly get restocked and flooded markets slowly drain.
+     * The spreads of the items that are not traded anymore widen too. It runs every TICK_PERIOD server ticks.
+     * See GlobalShopItem#applyRestock()
+     */
+    public static void tick() {
+        long now = System.currentTimeMillis();
+        for (int n = 0; n < listedCount; n++) {
+            int i = listed[n];
+
+            GlobalShopItem item = GlobalShop.getItem(MATERIALS[i]);
+            if (item != null) item.decaySpread(now);
+
+            long gap = target[i] - stock[i];
+            if (gap == 0) continue;
+
+            long step = (long) (gap * reversionRate[i]);
+            /// Always move at least one item, or the last part of the gap would never be covered
+            if (step == 0) step = gap > 0 ? 1 : -1;
+
+            long next = Math.max(stock[i] + step, reserved[i]);
+            if (next == stock[i]) continue;
+
+            if (item != null) {
+                item.applyRestock(next);
+            } else {
+                stock[i] = next;
+                version[i]++;
+            }
+        }
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @param material The Material to get the target of
+     * @return The amount of items the market tick moves the Material toward
+     */
+    public static long getTarget(Material material) {
+        return target[material.ordinal()];
+    }
+
+    /**
+     * Default setter for this class
+     *
+     * @param material The Material to set the target of
+     * @param value    The amount of items the market tick has to move the Material toward
+     */
+    public static void setTarget(Material material, long value) {
+        target[material.ordinal()] = Math.max(0, value);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @param material The Material to get the reversion rate of
+     * @return The share of the distance to the target covered on every market tick
+     */
+    public static double getReversionRate(Material material) {
+        return reversionRate[material.ordinal()];
+    }
+
+    /**
+     * Default setter for this class
+     *
+     * @param material The Material to set the reversion rate of
+     * @param value    The share of the distance to the target to cover on every market tick, between 0 and 1
+     */
+    public static void setReversionRate(Material material, double value) {
+        reversionRate[material.ordinal()] = Math.max(0.0, Math.min(1.0, value));
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.toniidev.toniishops.classes;
+
+import javax.annotation.Nullable;
+
+/**
+ * An amount of money, stored as a whole number of cents. Every balance and every price
+ * of the economy uses this class, so that adding and removing money never drifts
+ * like it does with doubles, and no BigDecimal has to be created to round it.
+ * Instances are immutable: every operation returns a new Money instance.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * Creates a Money instance from a whole number of cents
+     *
+     * @param cents The amount of cents
+     * @return The Money instance worth the specified amount of cents
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Creates a Money instance from an amount expressed in dollars, rounded half up to the cent
+     *
+     * @param value The amount of dollars
+     * @return The Money instance nearest to the specified amount
+     */
+    public static Money of(double value) {
+        return ofCents(toCents(value));
+    }
+
+    /**
+     * Rounds an amount expressed in dollars to the nearest cent, half up (away from zero)
+     *
+     * @param value The amount of dollars
+     * @return The amount of cents nearest to the specified value
+     */
+    public static long toCents(double value) {
+        return value >= 0 ? Math.round(value * 100) : -Math.round(-value * 100);
+    }
+
+    /**
+     * Parses an amount of money written by a player, like "12", "12.5", "12.50" or "12.50$".
+     * Digits after the second decimal place are rounded half up
+     *
+     * @param string The string to parse
+     * @return The parsed Money instance, or null if the string is not a valid amount of money or it is too big
+     */
+    @Nullable
+    public static Money parse(String string) {
+        if (string == null) return null;
+        String value = string.trim();
+        if (value.endsWith("$")) value = value.substring(0, value.length() - 1);
+
+        boolean negative = value.startsWith("-");
+        if (negative) value = value.substring(1);
+        if (value.isEmpty()) return null;
+
+        int dot = value.indexOf('.');
+        String whole = dot == -1 ? value : value.substring(0, dot);
+        String fraction = dot == -1 ? "" : value.substring(dot + 1);
+        if (whole.isEmpty() && fraction.isEmpty()) return null;
+
+        long cents = 0;
+        try {
+            for (char c : whole.toCharArray()) {
+                if (c < '0' || c > '9') return null;
+                cents = Math.addExact(Math.multiplyExact(cents, 10), c - '0');
+            }
+            cents = Math.multiplyExact(cents, 100);
+
+            for (int i = 0; i < fraction.length(); i++) {
+                char c = fraction.charAt(i);
+                if (c < '0' || c > '9') return null;
+                if (i == 0) cents = Math.addExact(cents, (c - '0') * 10L);
+                else if (i == 1) cents = Math.addExact(cents, c - '0');
+                else if (i == 2 && c >= '5') cents = Math.incrementExact(cents);
+            }
+        } catch (ArithmeticException e) {
+            /// The amount doesn't fit in a long, so it is as invalid as any other malformed amount
+            return null;
+        }
+
+        return ofCents(negative ? -cents : cents);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The amount of cents this Money instance is worth
+     */
+    public long getCents() {
+        return this.cents;
+    }
+
+    /**
+     * Gets this amount of money as dollars. It should only be used where a double is
+     * needed for math, never to store a balance
+     *
+     * @return The amount of dollars this Money instance is worth
+     */
+    public double toDouble() {
+        return this.cents / 100.0;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(this.cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(this.cents, other.cents));
+    }
+
+    public Money times(long amount) {
+        return ofCents(Math.multiplyExact(this.cents, amount));
+    }
+
+    /**
+     * Multiplies this amount of money by the specified factor, rounding the result half up to the cent
+     *
+     * @param factor The factor to multiply this amount by
+     * @return A new Money instance, worth this amount multiplied by the factor
+     */
+    public Money times(double factor) {
+        double value = this.cents * factor;
+        return ofCents(value >= 0 ? Math.round(value) : -Math.round(-value));
+    }
+
+    public boolean isNegative() {
+        return this.cents < 0;
+    }
+
+    public boolean isLowerThan(Money other) {
+        return this.cents < other.cents;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(this.cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.cents == this.cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.cents);
+    }
+
+    /**
+     * Formats this amount of money with two decimal places, like "1234.50"
+     *
+     * @return The formatted amount, without the currency symbol
+     */
+    @Override
+    public String toString() {
+        long absolute = Math.abs(this.cents);
+        long fraction = absolute % 100;
+        return (this.cents < 0 ? "-" : "") + absolute / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
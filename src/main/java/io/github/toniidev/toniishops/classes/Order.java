@@ -0,0 +1,189 @@
+package io.github.toniidev.toniishops.classes;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A limit order a player placed on the OrderBook of a GlobalShopItem. Buy orders hold the money
+ * they can spend at most, sell orders hold the items they sell, so filling an order never
+ * needs the player to be online.
+ * Orders are created by OrderBook#place(), and only their remaining amount changes over time.
+ */
+public final class Order {
+    /// Orders are only created on the main thread, so a plain counter is enough
+    private static long lastId = 0;
+
+    private final long id;
+    private final Material material;
+    private final boolean buy;
+    /// The limit price of one item, in cents. See Money
+    private final long limitPrice;
+    private final long amount;
+    private long remaining;
+    private final UUID playerUniqueID;
+    private final long placedAt;
+
+    Order(Material material, boolean buy, long amount, Money limitPrice, UUID player, long now) {
+        this(++lastId, material, buy, amount, amount, limitPrice.getCents(), player, now);
+    }
+
+    private Order(long id, Material material, boolean buy, long amount, long remaining, long limitPrice, UUID player, long placedAt) {
+        this.id = id;
+        this.material = material;
+        this.buy = buy;
+        this.amount = amount;
+        this.remaining = remaining;
+        this.limitPrice = limitPrice;
+        this.playerUniqueID = player;
+        this.placedAt = placedAt;
+    }
+
+    /**
+     * Creates an Order again from the record of its placing, while the journal is replayed. Ids keep being
+     * unique after it, since the next Orders get higher ones. See JournalReplay
+     *
+     * @param id       The id the Order had
+     * @param material The Material it trades
+     * @param buy      Whether it is a buy order
+     * @param amount   The amount of items it trades
+     * @param limitPrice The limit price of one item, in cents
+     * @param player   The UUID of the player that placed it
+     * @param placedAt When it was placed, in milliseconds
+     * @return The Order, not filled at all
+     */
+    static Order replayed(long id, Material material, boolean buy, long amount, long limitPrice, UUID player, long placedAt) {
+        lastId = Math.max(lastId, id);
+        return new Order(id, material, buy, amount, amount, limitPrice, player, placedAt);
+    }
+
+    /**
+     * Copies this Order, so that it can be written by another thread while this one keeps getting filled
+     *
+     * @return A new Order with the same id and remaining amount
+     */
+    Order copy() {
+        return new Order(id, material, buy, amount, remaining, limitPrice, playerUniqueID, placedAt);
+    }
+
+    /**
+     * Writes this Order. See read()
+     *
+     * @param out Where to write it
+     * @throws IOException If it can't be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeLong(id);
+        out.writeInt(material.ordinal());
+        out.writeBoolean(buy);
+        out.writeLong(amount);
+        out.writeLong(remaining);
+        out.writeLong(limitPrice);
+        out.writeLong(playerUniqueID.getMostSignificantBits());
+        out.writeLong(playerUniqueID.getLeastSignificantBits());
+        out.writeLong(placedAt);
+    }
+
+    /**
+     * Reads an Order written by write(). Ids keep being unique after it, since the next Orders get higher ones
+     *
+     * @param in        Where to read it from
+     * @param materials The table that converts the Material ordinals it was written with. See TradeJournal#getMaterialTable()
+     * @param values    Every Material, by ordinal
+     * @return The Order. Its Material is null if it doesn't exist anymore
+     * @throws IOException If it can't be read
+     */
+    static Order read(DataInput in, int[] materials, Material[] values) throws IOException {
+        long id = in.readLong();
+        int material = in.readInt();
+        boolean buy = in.readBoolean();
+        long amount = in.readLong();
+        long remaining = in.readLong();
+        long limitPrice = in.readLong();
+        UUID player = new UUID(in.readLong(), in.readLong());
+        long placedAt = in.readLong();
+
+        lastId = Math.max(lastId, id);
+        Material value = material >= 0 && material < materials.length && materials[material] != -1 ? values[materials[material]] : null;
+        return new Order(id, value, buy, amount, remaining, limitPrice, player, placedAt);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The Material this Order trades. It is only null for Orders read from a snapshot whose Material
+     * doesn't exist anymore, which never get on an OrderBook
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Tells whether this Order is about buying items or not
+     *
+     * @return true if this is a buy order, false if it is a sell order
+     */
+    public boolean isBuy() {
+        return buy;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The highest price of one item a buy order pays, or the lowest price of one item a sell order accepts
+     */
+    public Money getLimitPrice() {
+        return Money.ofCents(limitPrice);
+    }
+
+    long getLimitPriceCents() {
+        return limitPrice;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The amount of items that still have to be traded before this Order is filled
+     */
+    public long getRemaining() {
+        return remaining;
+    }
+
+    void fill(long amount) {
+        this.remaining -= amount;
+    }
+
+    public boolean isFilled() {
+        return remaining <= 0;
+    }
+
+    public UUID getPlayerUniqueID() {
+        return playerUniqueID;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The Player that placed this Order, or null if he is offline
+     */
+    public Player getPlayer() {
+        return Bukkit.getPlayer(playerUniqueID);
+    }
+
+    public long getPlacedAt() {
+        return placedAt;
+    }
+}
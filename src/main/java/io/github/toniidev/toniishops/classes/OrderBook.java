@@ -0,0 +1,500 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import io.github.toniidev.toniishops.factories.StringFactory;
+import io.github.toniidev.toniishops.strings.GlobalShopError;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * The limit orders players placed on a GlobalShopItem. Orders are matched with price-time priority:
+ * the best price comes first, and orders at the same price are filled in the order they were placed.
+ * Matching doesn't happen when an order is placed, but in a batch every MATCH_PERIOD server ticks.
+ * Buy and sell orders that cross are traded with each other first, at the price of the oldest of the two.
+ * The volume that is left is then traded with the market, as long as its price stays within the limit.
+ * Nothing is matched while trading on the item is halted by its CircuitBreaker.
+ */
+public class OrderBook {
+    /**
+     * How often the orders get matched, in server ticks (20 ticks = 1 second)
+     */
+    public static final long MATCH_PERIOD = 20;
+
+    /// Every Order that is not filled nor cancelled, by id
+    private static final Map<Long, Order> orders = new HashMap<>();
+    /// The OrderBooks that contain at least one Order, so that matching skips the empty ones
+    private static final Set<OrderBook> active = new LinkedHashSet<>();
+
+    private final GlobalShopItem item;
+    private final Side bids = new Side();
+    private final Side asks = new Side();
+
+    /**
+     * Creates a new OrderBook instance
+     *
+     * @param item The GlobalShopItem whose orders are stored in this OrderBook
+     */
+    OrderBook(GlobalShopItem item) {
+        this.item = item;
+    }
+
+    /**
+     * One side of the book. Price levels are sorted by a key, that is the limit price for bids
+     * and the opposite of the limit price for asks, so that the best level is always the last one.
+     * Each level is a queue of Orders, oldest first
+     */
+    private static final class Side {
+        private long[] keys = new long[8];
+        private final List<ArrayDeque<Order>> levels = new ArrayList<>();
+        private int size = 0;
+
+        private static long keyOf(Order order) {
+            return order.isBuy() ? order.getLimitPriceCents() : -order.getLimitPriceCents();
+        }
+
+        void add(Order order) {
+            long key = keyOf(order);
+            int i = Arrays.binarySearch(keys, 0, size, key);
+            if (i >= 0) {
+                levels.get(i).addLast(order);
+                return;
+            }
+
+            i = -(i + 1);
+            if (size == keys.length) keys = Arrays.copyOf(keys, size * 2);
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            keys[i] = key;
+            ArrayDeque<Order> level = new ArrayDeque<>();
+            level.addLast(order);
+            levels.add(i, level);
+            size++;
+        }
+
+        void remove(Order order) {
+            int i = Arrays.binarySearch(keys, 0, size, keyOf(order));
+            if (i < 0) return;
+            levels.get(i).remove(order);
+            if (levels.get(i).isEmpty()) removeLevel(i);
+        }
+
+        private void removeLevel(int i) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            levels.remove(i);
+            size--;
+        }
+
+        /// The oldest Order at the best price, or null if this side is empty
+        @Nullable
+        Order best() {
+            return size == 0 ? null : levels.get(size - 1).peekFirst();
+        }
+
+        /// Removes the best Order, once it has been filled
+        void removeBest() {
+            ArrayDeque<Order> level = levels.get(size - 1);
+            level.pollFirst();
+            if (level.isEmpty()) removeLevel(size - 1);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /// The first Order of a player that is big enough for a fill, in the order Orders are filled
+        @Nullable
+        Order find(UUID player, long amount) {
+            for (int i = size - 1; i >= 0; i--) {
+                for (Order order : levels.get(i)) {
+                    if (order.getPlayerUniqueID().equals(player) && order.getRemaining() >= amount) return order;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Places a new Order on this OrderBook. A buy order takes the money it could spend at most from the
+     * player's balance, a sell order takes the items from the player's inventory. If the player can't
+     * afford it, or the whole order is worth more money than can exist, he is told why and nothing happens
+     *
+     * @param player     The player that places the Order
+     * @param buy        Whether the player wants to buy or sell
+     * @param amount     The amount of items to trade
+     * @param limitPrice The highest price of one item to buy at, or the lowest price of one item to sell at
+     * @return The placed Order, or null if the player can't place it
+     */
+    @Nullable
+    public Order place(Player player, boolean buy, long amount, Money limitPrice) {
+        if (amount <= 0 || limitPrice.getCents() <= 0) return null;
+
+        ServerPlayer serverPlayer = ServerPlayer.getPlayer(player);
+        assert serverPlayer != null;
+
+        /// Filling an Order multiplies its limit by the amount, so that must always fit in a long
+        Money total;
+        try {
+            total = limitPrice.times(amount);
+        } catch (ArithmeticException e) {
+            player.sendMessage(GlobalShopError.INVALID_PRICE.getMessage());
+            return null;
+        }
+
+        if (buy) {
+            if (!serverPlayer.secureRemoveMoney(total)) return null;
+        } else {
+            if (item.getPresenceInPlayerInventory(player) < amount) {
+                player.sendMessage(GlobalShopError.NOT_ENOUGH_ITEMS.getMessage());
+                return null;
+            }
+            item.removeFromInventory(player, amount);
+        }
+
+        Order order = new Order(item.getMaterial(), buy, amount, limitPrice, player.getUniqueId(), System.currentTimeMillis());
+        (buy ? bids : asks).add(order);
+        orders.put(order.getId(), order);
+        active.add(this);
+        TradeRecorder.recordOrder(buy ? TradeKind.ORDER_PLACED_BUY : TradeKind.ORDER_PLACED_SELL, order);
+
+        return order;
+    }
+
+    /**
+     * Removes an Order from this OrderBook and gives back to the player what is left of
+     * the money or of the items it was holding
+     *
+     * @param order The Order to cancel
+     */
+    public void cancel(Order order) {
+        if (orders.remove(order.getId()) == null) return;
+        (order.isBuy() ? bids : asks).remove(order);
+        TradeRecorder.recordOrder(TradeKind.ORDER_CANCELLED, order);
+
+        ServerPlayer serverPlayer = ServerPlayer.getPlayer(order.getPlayerUniqueID());
+        if (serverPlayer != null) {
+            if (order.isBuy()) serverPlayer.addMoney(order.getLimitPrice().times(order.getRemaining()));
+            else serverPlayer.giveItems(item.getMaterial(), order.getRemaining());
+        }
+
+        if (bids.isEmpty() && asks.isEmpty()) active.remove(this);
+    }
+
+    /**
+     * Cancels every Order of this OrderBook, giving back what they hold. See cancel()
+     */
+    void cancelAll() {
+        for (Order order : new ArrayList<>(orders.values())) {
+            if (order.getMaterial() == item.getMaterial()) this.cancel(order);
+        }
+    }
+
+    /**
+     * Matches the orders of this OrderBook. Crossing orders are traded with each other first, then
+     * what is left is traded with the market. Since levels are visited from the best price, matching
+     * with the market stops at the first Order the market can't completely fill
+     */
+    public void match() {
+        /// Orders wait on the book while trading is halted, and items that are not sold anymore are never traded
+        if (item.isTradingHalted() || !GlobalShop.canSell(item.getMaterial())) return;
+
+        Order bid = bids.best();
+        Order ask = asks.best();
+        while (bid != null && ask != null && bid.getLimitPriceCents() >= ask.getLimitPriceCents()) {
+            long amount = Math.min(bid.getRemaining(), ask.getRemaining());
+            /// The order that was already waiting sets the price
+            long price = bid.getPlacedAt() <= ask.getPlacedAt() ? bid.getLimitPriceCents() : ask.getLimitPriceCents();
+            this.trade(bid, ask, amount, price);
+
+            if (bid.isFilled()) this.removeFilled(bids);
+            if (ask.isFilled()) this.removeFilled(asks);
+            bid = bids.best();
+            ask = asks.best();
+        }
+
+        while ((bid = bids.best()) != null && !item.isTradingHalted()) {
+            this.fillBuyFromMarket(bid);
+            if (!bid.isFilled()) break;
+            this.removeFilled(bids);
+        }
+
+        while ((ask = asks.best()) != null && !item.isTradingHalted()) {
+            this.fillSellToMarket(ask);
+            if (!ask.isFilled()) break;
+            this.removeFilled(asks);
+        }
+
+        if (bids.isEmpty() && asks.isEmpty()) active.remove(this);
+    }
+
+    private void removeFilled(Side side) {
+        Order order = side.best();
+        side.removeBest();
+        if (order != null) orders.remove(order.getId());
+    }
+
+    /**
+     * Trades items between a buy order and a sell order. The buyer gets back the difference
+     * between his limit and the trade price
+     */
+    private void trade(Order bid, Order ask, long amount, long price) {
+        Money cost = Money.ofCents(price).times(amount);
+        bid.fill(amount);
+        ask.fill(amount);
+
+        ServerPlayer buyer = ServerPlayer.getPlayer(bid.getPlayerUniqueID());
+        if (buyer != null) {
+            buyer.addMoney(Money.ofCents(bid.getLimitPriceCents() - price).times(amount));
+            buyer.giveItems(item.getMaterial(), amount);
+        }
+        ServerPlayer seller = ServerPlayer.getPlayer(ask.getPlayerUniqueID());
+        if (seller != null) seller.addMoney(cost);
+
+        this.recordFill(bid, amount, cost, TradeKind.MATCH_BUY);
+        this.recordFill(ask, amount, cost, TradeKind.MATCH_SELL);
+    }
+
+    /**
+     * Buys from the market as many items of a buy order as possible, without paying more than its limit on average
+     */
+    private void fillBuyFromMarket(Order bid) {
+        long limit = bid.getLimitPriceCents();
+        long low = 0, high = Math.min(bid.getRemaining(), item.getAvailableAmount());
+        /// The average price grows with the amount, so the largest amount within the limit can be searched
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            if (item.getCumulativeBuyPrice(mid).getCents() <= limit * mid) low = mid;
+            else high = mid - 1;
+        }
+        if (low == 0) return;
+
+        Money cost = item.getCumulativeBuyPrice(low);
+        bid.fill(low);
+        item.applyTrade(-low);
+
+        ServerPlayer buyer = ServerPlayer.getPlayer(bid.getPlayerUniqueID());
+        if (buyer != null) {
+            buyer.addMoney(Money.ofCents(limit).times(low).minus(cost));
+            buyer.giveItems(item.getMaterial(), low);
+        }
+
+        this.recordFill(bid, low, cost, TradeKind.ORDER_BUY);
+    }
+
+    /**
+     * Sells to the market as many items of a sell order as possible, without getting less than its limit on average
+     */
+    private void fillSellToMarket(Order ask) {
+        long limit = ask.getLimitPriceCents();
+        long low = 0, high = ask.getRemaining();
+        /// The average price falls with the amount, so the largest amount within the limit can be searched
+        while (low < high) {
+            long mid = (low + high + 1) >>> 1;
+            if (item.getCumulativeSellPrice(mid).getCents() >= limit * mid) low = mid;
+            else high = mid - 1;
+        }
+        if (low == 0) return;
+
+        Money value = item.getCumulativeSellPrice(low);
+        ask.fill(low);
+        item.applyTrade(low);
+
+        ServerPlayer seller = ServerPlayer.getPlayer(ask.getPlayerUniqueID());
+        if (seller != null) seller.addMoney(value);
+
+        this.recordFill(ask, low, value, TradeKind.ORDER_SELL);
+    }
+
+    /**
+     * Adds a filled part of an Order to the history of the item and tells the player about it, if he is online
+     */
+    private void recordFill(Order order, long amount, Money price, TradeKind kind) {
+        TradeHistory history = order.isBuy() ? item.getBuyTradeHistory() : item.getSellTradeHistory();
+        history.add(System.currentTimeMillis(), order.getPlayerUniqueID(), amount, price);
+        TradeRecorder.record(kind, item.getMaterial(), order.getPlayerUniqueID(), amount, price, item.getAmountOnTheMarket());
+
+        Player player = order.getPlayer();
+        if (player == null) return;
+
+        player.sendMessage(new StringFactory()
+                .append("[Server]").setColor('a')
+                .append("Order #" + order.getId() + ":").setColor('e')
+                .append(order.isBuy() ? "Bought" : "Sold").setColor('7')
+                .append(String.valueOf(amount)).setColor('f')
+                .append(item.getMaterial().name().toLowerCase(Locale.ROOT).replace("_", " "))
+                .append("for").setColor('7')
+                .append(price + "$").setColor('f')
+                .get());
+    }
+
+    /**
+     * Matches the orders of every OrderBook that contains at least one. It runs every MATCH_PERIOD server ticks
+     */
+    public static void matchAll() {
+        for (OrderBook book : new ArrayList<>(active)) {
+            book.match();
+        }
+    }
+
+    /**
+     * Copies every Order that is still on its OrderBook, with what it is still holding, so that they can be
+     * written by another thread. See MarketSnapshot
+     *
+     * @return The copies, oldest first
+     */
+    static List<Order> copyOrders() {
+        List<Order> value = new ArrayList<>(orders.size());
+        for (Order order : orders.values()) value.add(order.copy());
+        value.sort(Comparator.comparingLong(Order::getId));
+        return value;
+    }
+
+    /**
+     * Puts Orders copied by copyOrders() back on their OrderBooks, still holding the money or the items they were
+     * holding. Orders on Materials that are not sold anymore are cancelled, giving back what they hold.
+     * It must be called after the balances are restored, so that the refunds are not overwritten
+     *
+     * @param value The Orders, oldest first
+     */
+    static void restore(List<Order> value) {
+        for (Order order : value) {
+            GlobalShopItem item = order.getMaterial() == null ? null : GlobalShop.getItem(order.getMaterial());
+            if (item != null && GlobalShop.canSell(order.getMaterial())) {
+                OrderBook book = item.getOrderBook();
+                (order.isBuy() ? book.bids : book.asks).add(order);
+                orders.put(order.getId(), order);
+                active.add(book);
+                continue;
+            }
+
+            ServerPlayer serverPlayer = ServerPlayer.getPlayer(order.getPlayerUniqueID());
+            if (serverPlayer == null) continue;
+            if (order.isBuy()) {
+                serverPlayer.addMoney(order.getLimitPrice().times(order.getRemaining()));
+            } else if (order.getMaterial() != null) {
+                serverPlayer.giveItems(order.getMaterial(), order.getRemaining());
+            } else {
+                Bukkit.getLogger().warning("Order #" + order.getId() + " sold items that don't exist anymore, " +
+                        order.getRemaining() + " items could not be given back to " + order.getPlayerUniqueID());
+            }
+        }
+    }
+
+    /**
+     * Applies the placing or the cancelling of an Order the journal recorded after a MarketSnapshot, and works out
+     * how it changed the balance of the player. Placed Orders go back on this OrderBook, so that the fills after
+     * them find them. Only money is given back: the items of a sell order are in the inventory of the player,
+     * that the server saves with the world and not with the snapshot. See JournalReplay
+     *
+     * @param kind   ORDER_PLACED_BUY, ORDER_PLACED_SELL or ORDER_CANCELLED
+     * @param player The UUID of the player that placed the Order
+     * @param id     The id of the Order
+     * @param amount The amount of the Order, or what was left of it when it was cancelled
+     * @param limit  The limit price of one item, in cents
+     * @param time   When it was placed or cancelled, in milliseconds
+     * @return How much it changed the balance of the player, in cents
+     */
+    long replayOrder(TradeKind kind, UUID player, long id, long amount, long limit, long time) {
+        if (kind == TradeKind.ORDER_CANCELLED) {
+            Order order = orders.remove(id);
+            if (order == null) return 0;
+            (order.isBuy() ? bids : asks).remove(order);
+            if (bids.isEmpty() && asks.isEmpty()) active.remove(this);
+            return order.isBuy() ? order.getLimitPriceCents() * order.getRemaining() : 0;
+        }
+
+        boolean buy = kind == TradeKind.ORDER_PLACED_BUY;
+        Order order = Order.replayed(id, item.getMaterial(), buy, amount, limit, player, time);
+        (buy ? bids : asks).add(order);
+        orders.put(id, order);
+        active.add(this);
+        return buy ? -limit * amount : 0;
+    }
+
+    /**
+     * Applies a fill the journal recorded after a MarketSnapshot to the Orders that were restored from it, so that
+     * they don't get filled again, and works out how the fill changed the balance of the player. The journal doesn't
+     * say which Order was filled, so it is the first Order of the player, in the order they are filled, that is
+     * big enough for it. See JournalReplay
+     *
+     * @param player The UUID of the player whose Order was filled
+     * @param buy    Whether it was a buy order
+     * @param amount The amount of items filled
+     * @param cost   The price of the whole fill, in cents
+     * @return How much the fill changed the balance of the player, in cents. A restored buy order had already taken
+     * its money, so the player only got back what the fill didn't spend. An Order placed after the snapshot is not
+     * on the book, and the snapshot balance never paid for it, so the player paid the whole price
+     */
+    long replayFill(UUID player, boolean buy, long amount, long cost) {
+        Side side = buy ? bids : asks;
+        Order order = side.find(player, amount);
+        if (order == null) return buy ? -cost : cost;
+
+        order.fill(amount);
+        if (order.isFilled()) {
+            side.remove(order);
+            orders.remove(order.getId());
+            if (bids.isEmpty() && asks.isEmpty()) active.remove(this);
+        }
+        return buy ? order.getLimitPriceCents() * amount - cost : cost;
+    }
+
+    /**
+     * Gets an Order that is still on its OrderBook
+     *
+     * @param id The id of the Order
+     * @return The Order with the specified id, or null if it has been filled or cancelled
+     */
+    @Nullable
+    public static Order getOrder(long id) {
+        return orders.get(id);
+    }
+
+    /**
+     * Gets every Order of a player that is still on its OrderBook
+     *
+     * @param player The UUID of the player
+     * @return The Orders of the player, oldest first
+     */
+    public static List<Order> getOrders(UUID player) {
+        List<Order> value = new ArrayList<>();
+        for (Order order : orders.values()) {
+            if (order.getPlayerUniqueID().equals(player)) value.add(order);
+        }
+        value.sort(Comparator.comparingLong(Order::getId));
+        return value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The best price a buy order offers, or null if there are no buy orders
+     */
+    @Nullable
+    public Money getBestBid() {
+        Order order = bids.best();
+        return order == null ? null : order.getLimitPrice();
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The best price a sell order asks, or null if there are no sell orders
+     */
+    @Nullable
+    public Money getBestAsk() {
+        Order order = asks.best();
+        return order == null ? null : order.getLimitPrice();
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The Material the orders of this OrderBook trade
+     */
+    public Material getMaterial() {
+        return item.getMaterial();
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.factories.StringFactory;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * The price alerts players subscribed to on a GlobalShopItem. Thresholds are kept in two sorted maps,
+ * one for the alerts that fire when the sell price goes above them and one for the alerts that fire
+ * when it goes below them. When a trade moves the price, only the thresholds between the old and
+ * the new price are visited, so firing k alerts costs O(log n + k), however many alerts there are.
+ * Alerts fire once and are then removed.
+ */
+public class PriceAlerts {
+    /**
+     * How many alerts a player can have at the same time, on all the items
+     */
+    public static final int MAX_ALERTS_PER_PLAYER = 20;
+
+    /// How many alerts each player has, on all the items
+    private static final Map<UUID, Integer> alertsPerPlayer = new HashMap<>();
+
+    private final Material material;
+    /// The players to alert, by threshold in cents. See Money
+    private final TreeMap<Long, List<UUID>> above = new TreeMap<>();
+    private final TreeMap<Long, List<UUID>> below = new TreeMap<>();
+
+    /**
+     * Creates a new PriceAlerts instance
+     *
+     * @param material The Material of the GlobalShopItem these alerts are about
+     */
+    PriceAlerts(Material material) {
+        this.material = material;
+    }
+
+    /**
+     * Subscribes a player to an alert
+     *
+     * @param player    The UUID of the player to alert
+     * @param isAbove   true to alert when the price goes above the threshold, false when it goes below it
+     * @param threshold The price to alert at
+     * @return false if the player already has MAX_ALERTS_PER_PLAYER alerts, true otherwise
+     */
+    public boolean add(UUID player, boolean isAbove, Money threshold) {
+        int count = alertsPerPlayer.getOrDefault(player, 0);
+        if (count >= MAX_ALERTS_PER_PLAYER) return false;
+
+        alertsPerPlayer.put(player, count + 1);
+        (isAbove ? above : below).computeIfAbsent(threshold.getCents(), x -> new ArrayList<>()).add(player);
+        return true;
+    }
+
+    /**
+     * Fires the alerts whose threshold has been crossed by a price move
+     *
+     * @param from The sell price before the move
+     * @param to   The sell price after the move
+     */
+    public void onPriceChange(Money from, Money to) {
+        int direction = to.compareTo(from);
+        if (direction == 0) return;
+
+        /// A rising price crosses the "above" thresholds in (from, to], a falling one the "below" thresholds in [to, from)
+        NavigableMap<Long, List<UUID>> crossed = direction > 0
+                ? above.subMap(from.getCents(), false, to.getCents(), true)
+                : below.subMap(to.getCents(), true, from.getCents(), false);
+        if (crossed.isEmpty()) return;
+
+        for (Map.Entry<Long, List<UUID>> entry : crossed.entrySet()) {
+            for (UUID player : entry.getValue()) {
+                this.fire(player, direction > 0, Money.ofCents(entry.getKey()), to);
+            }
+        }
+        /// Clearing the view removes the fired alerts from the backing map
+        crossed.clear();
+    }
+
+    private void fire(UUID uniqueId, boolean isAbove, Money threshold, Money price) {
+        alertsPerPlayer.computeIfPresent(uniqueId, (k, v) -> v > 1 ? v - 1 : null);
+
+        Player player = Bukkit.getPlayer(uniqueId);
+        if (player == null) return;
+
+        player.sendMessage(new StringFactory()
+                .append("[Server]").setColor('a')
+                .append("Price alert:").setColor('e')
+                .append(material.name().toLowerCase(Locale.ROOT).replace("_", " ")).setColor('f')
+                .append("went " + (isAbove ? "above" : "below")).setColor('7')
+                .append(threshold + "$").setColor('f')
+                .append("and is now sold for").setColor('7')
+                .append(price + "$").setColor('f')
+                .get());
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.GlobalShopActionType;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * A price that the Global Shop has locked for a player. While a Quote is valid, the
+ * GlobalShopItem it belongs to holds its amount of items for it, so confirming it only
+ * has to move items and money, without pricing anything again.
+ * Quotes are immutable and are created by GlobalShopItem#lockQuote().
+ */
+public final class Quote {
+    /**
+     * How long a Quote stays valid after it gets locked
+     */
+    public static final long VALIDITY_MILLIS = 30_000;
+
+    /// Quotes are only created on the main thread, so a plain counter is enough
+    private static long lastId = 0;
+
+    private final long id;
+    private final Material material;
+    private final GlobalShopActionType type;
+    private final long amount;
+    /// The price, in cents. See Money
+    private final long price;
+    private final UUID playerUniqueID;
+    private final long expiresAt;
+
+    Quote(Material material, GlobalShopActionType type, long amount, Money price, UUID player, long now) {
+        this.id = ++lastId;
+        this.material = material;
+        this.type = type;
+        this.amount = amount;
+        this.price = price.getCents();
+        this.playerUniqueID = player;
+        this.expiresAt = now + VALIDITY_MILLIS;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public GlobalShopActionType getType() {
+        return type;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public Money getPrice() {
+        return Money.ofCents(price);
+    }
+
+    public UUID getPlayerUniqueID() {
+        return playerUniqueID;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The Player this Quote was locked for, or null if he is offline
+     */
+    public Player getPlayer() {
+        return Bukkit.getPlayer(playerUniqueID);
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Tells whether this Quote is about buying items from the Global Shop or not
+     *
+     * @return true if this Quote is for buying items, false if it is for selling them
+     */
+    public boolean isBuy() {
+        return type.equals(GlobalShopActionType.BUY_ONE) || type.equals(GlobalShopActionType.BUY_MULTIPLE);
+    }
+
+    /**
+     * Tells whether this Quote can't be confirmed anymore
+     *
+     * @param now The current time, in milliseconds
+     * @return true if the validity of this Quote has ended
+     */
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.toniidev.toniishops.classes;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memoizes the quotes of a single GlobalShopItem. Every quote is stored together with the
+ * market version it was computed at: as soon as the GlobalShopItem gets traded its version
+ * changes, so every cached quote gets dropped the next time the cache is read.
+ * Buy and sell actions of one or more items share the same quotes, since the price only
+ * depends on whether items are bought or sold and on how many they are.
+ */
+public class QuoteCache {
+    /**
+     * Between two trades players can type any custom amount, so the cache gets cleared when
+     * it holds this many quotes, to keep it from growing without limits
+     */
+    private static final int MAX_QUOTES = 256;
+
+    private final Map<Long, Money> quotes = new HashMap<>();
+    private long version = -1;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Gets a quote from the cache
+     *
+     * @param buy           true if the quote is for buying items, false if it is for selling them
+     * @param amount        The amount of items the quote is for
+     * @param marketVersion The current market version of the GlobalShopItem
+     * @return The cached quote, or null if it was never computed at this market version
+     */
+    @Nullable
+    public Money get(boolean buy, long amount, long marketVersion) {
+        if (this.version != marketVersion) {
+            this.quotes.clear();
+            this.version = marketVersion;
+        }
+
+        Money value = this.quotes.get(getKey(buy, amount));
+        if (value == null) this.misses++;
+        else this.hits++;
+
+        return value;
+    }
+
+    /**
+     * Stores a quote in the cache
+     *
+     * @param buy           true if the quote is for buying items, false if it is for selling them
+     * @param amount        The amount of items the quote is for
+     * @param marketVersion The market version of the GlobalShopItem the quote was computed at
+     * @param value         The quote
+     */
+    public void put(boolean buy, long amount, long marketVersion, Money value) {
+        if (this.version != marketVersion) return;
+        if (this.quotes.size() >= MAX_QUOTES) this.quotes.clear();
+
+        this.quotes.put(getKey(buy, amount), value);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many times a requested quote was found in the cache
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many times a requested quote had to be computed
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Gets the share of requested quotes that were found in the cache
+     *
+     * @return A number between 0 and 1. It is 0 if no quote was ever requested
+     */
+    public double getHitRatio() {
+        long total = this.hits + this.misses;
+        return total == 0 ? 0.0 : (double) this.hits / total;
+    }
+
+    private static long getKey(boolean buy, long amount) {
+        return (amount << 1) | (buy ? 1 : 0);
+    }
+}
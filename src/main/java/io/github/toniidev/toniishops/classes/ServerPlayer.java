@@ -3,10 +3,10 @@ package io.github.toniidev.toniishops.classes;
 import io.github.toniidev.toniishops.factories.ScoreboardFactory;
 import io.github.toniidev.toniishops.strings.GeneralMessage;
 import io.github.toniidev.toniishops.strings.ShopError;
-import io.github.toniidev.toniishops.utils.NumberUtils;
 import io.github.toniidev.toniishops.utils.StringUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
@@ -17,15 +17,21 @@ import java.util.UUID;
 
 public class ServerPlayer {
     /**
-     * Items of this lists are loaded onEnable and
-     * are saved onDisable
-     * TODO: Save and load this lists' items
+     * The balances of the items of this list are saved in every MarketSnapshot
+     * and restored onEnable, with the trades after the snapshot replayed on them. See JournalReplay.
+     * The stashed items are not, see MarketSnapshot
      */
     public static List<ServerPlayer> serverPlayers = new ArrayList<>();
 
+    /**
+     * The balance a player starts with, in cents. See Money
+     */
+    public static final long STARTING_MONEY = 4000000;
+
     private final List<ItemStack> stashed = new ArrayList<>();
     private final UUID playerUniqueID;
-    private double money = 40000;
+    /// The balance, in cents. See Money
+    private long money = STARTING_MONEY;
 
     /**
      * Creates a new ServerPlayer instance
@@ -37,6 +43,27 @@ public class ServerPlayer {
         this.refreshScoreboard();
     }
 
+    /**
+     * Creates a ServerPlayer instance for a player that may be offline, with the balance he had
+     * when the plugin was disabled. See MarketSnapshot
+     *
+     * @param uniqueId The UUID of the player
+     * @param money    His balance, in cents
+     */
+    ServerPlayer(UUID uniqueId, long money) {
+        this.playerUniqueID = uniqueId;
+        this.money = money;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The UUID of the Player linked to this ServerPlayer instance
+     */
+    public UUID getUniqueId() {
+        return this.playerUniqueID;
+    }
+
     /**
      * Default getter for this class
      * @return A List of ItemStacks containing all the ItemStacks that could not be assigned to the player
@@ -80,6 +107,24 @@ public class ServerPlayer {
         else this.getPlayer().getInventory().addItem(itemStack);
     }
 
+    /**
+     * Gives the specified amount of items to the Player linked to this ServerPlayer instance, in stacks
+     * as big as the Material allows. If the player is offline, they are all sent to /stashed inventory
+     * @param material The Material of the items to give
+     * @param amount The amount of items to give
+     */
+    public void giveItems(Material material, long amount) {
+        while (amount > 0) {
+            int stackAmount = (int) Math.min(amount, material.getMaxStackSize());
+            ItemStack itemStack = new ItemStack(material, stackAmount);
+
+            if (this.getPlayer() == null) this.addItemStackToStashed(itemStack);
+            else this.addItemToInventory(itemStack);
+
+            amount -= stackAmount;
+        }
+    }
+
     /**
      * Tells whether this player is saved in ServerPlayer.serverPlayers or not.
      * If it's not, it means the player is new
@@ -97,7 +142,7 @@ public class ServerPlayer {
     /**
      * Default getter for this class
      *
-     * @return The Player linked to this ServerPlayer instance
+     * @return The Player linked to this ServerPlayer instance, or null if he is offline
      */
     public Player getPlayer() {
         return Bukkit.getPlayer(this.playerUniqueID);
@@ -108,8 +153,8 @@ public class ServerPlayer {
      *
      * @return The balance of the Player linked to this ServerPlayer instance
      */
-    public double getMoney() {
-        return this.money;
+    public Money getMoney() {
+        return Money.ofCents(this.money);
     }
 
     /**
@@ -117,8 +162,8 @@ public class ServerPlayer {
      *
      * @param value The new value of the balance of the Player linked to this ServerPlayer instance
      */
-    public void setMoney(double value) {
-        this.money = value;
+    public void setMoney(Money value) {
+        this.money = value.getCents();
         this.refreshScoreboard();
     }
 
@@ -127,8 +172,8 @@ public class ServerPlayer {
      *
      * @param value The amount of money to add to the balance of the Player linked to this ServerPlayer instance
      */
-    public void addMoney(double value) {
-        this.setMoney(this.getMoney() + value);
+    public void addMoney(Money value) {
+        this.setMoney(this.getMoney().plus(value));
     }
 
     /**
@@ -136,8 +181,8 @@ public class ServerPlayer {
      *
      * @param value The amount of money to remove from the balance of the Player linked to this ServerPlayer instance
      */
-    public void removeMoney(double value) {
-        this.setMoney(this.getMoney() - value);
+    public void removeMoney(Money value) {
+        this.setMoney(this.getMoney().minus(value));
     }
 
     /**
@@ -146,8 +191,8 @@ public class ServerPlayer {
      * @param value The amount of money to remove from Player balance
      * @return true if the operation is successful, false if it's not
      */
-    public boolean secureRemoveMoney(double value) {
-        if (this.getMoney() < value) {
+    public boolean secureRemoveMoney(Money value) {
+        if (this.getMoney().isLowerThan(value)) {
             this.getPlayer().sendMessage(ShopError.NOT_ENOUGH_MONEY.getMessage());
             return false;
         }
@@ -164,11 +209,42 @@ public class ServerPlayer {
      */
     @Nullable
     public static ServerPlayer getPlayer(Player player) {
+        return ServerPlayer.getPlayer(player.getUniqueId());
+    }
+
+    /**
+     * Gets the ServerInstance linked to the player with the specified UUID, if it has one.
+     * It also works when the player is offline
+     *
+     * @param uniqueId The UUID of the player we need the ServerPlayer instance of
+     * @return The ServerPlayer instance linked to the specified UUID if it exists, null if it doesn't exist
+     */
+    @Nullable
+    public static ServerPlayer getPlayer(UUID uniqueId) {
         return ServerPlayer.serverPlayers.stream()
-                .filter(x -> x.getPlayer().equals(player))
+                .filter(x -> x.playerUniqueID.equals(uniqueId))
                 .findFirst().orElse(null);
     }
 
+    /**
+     * Finds a player that has a ServerPlayer instance by his name, without looking up his profile online like
+     * Bukkit#getOfflinePlayer(String) does. Every player that ever traded has one
+     *
+     * @param name The name of the player, in any case
+     * @return The player, or null if no player with that name is known
+     */
+    @Nullable
+    public static OfflinePlayer findOfflinePlayer(String name) {
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) return online;
+
+        for (ServerPlayer serverPlayer : ServerPlayer.serverPlayers) {
+            OfflinePlayer value = Bukkit.getOfflinePlayer(serverPlayer.playerUniqueID);
+            if (name.equalsIgnoreCase(value.getName())) return value;
+        }
+        return null;
+    }
+
     /**
      * Default getter for this class.
      *
@@ -183,7 +259,7 @@ public class ServerPlayer {
 
         return new ScoreboardFactory(this.getPlayer(), StringUtils.formatColorCodes('&', "&b&lWorld&f&lWide"))
                 .addLine("　")
-                .addLine(StringUtils.formatColorCodes('&', "&fMoney: &a" + NumberUtils.round(this.money, 2) + "$"))
+                .addLine(StringUtils.formatColorCodes('&', "&fMoney: &a" + this.getMoney() + "$"))
                 .addLine(shopLine)
                 .addBlankLine()
                 .addLine(StringUtils.formatColorCodes('&', "&fLocation: &r" + StringUtils.convertLocation(this.getPlayer().getLocation(), ',', '7', 'e')));
@@ -193,6 +269,8 @@ public class ServerPlayer {
      * Refreshes the scoreboard of the Player linked to this ServerPlayer instance
      */
     public void refreshScoreboard() {
+        /// Offline players can still receive money, from their orders
+        if (this.getPlayer() == null) return;
         this.getScoreboardFactory().display();
     }
 
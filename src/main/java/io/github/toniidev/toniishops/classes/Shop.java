@@ -1,5 +1,6 @@
 package io.github.toniidev.toniishops.classes;
 
+import io.github.toniidev.toniishops.enums.TradeKind;
 import io.github.toniidev.toniishops.factories.InventoryFactory;
 import io.github.toniidev.toniishops.factories.ItemStackFactory;
 import io.github.toniidev.toniishops.utils.ItemUtils;
@@ -42,7 +43,8 @@ public class Shop {
             .get();
 
     private final Location location;
-    private final double fixedPrice;
+    /// The price of any item, in cents. See Money
+    private final long fixedPrice;
     private final UUID shopOwner;
     private final String serial;
     private final boolean isLocationPublic;
@@ -56,9 +58,9 @@ public class Shop {
      * @param showLocationToOtherPlayers Choose whether the location should be shown to other players or not.
      *                                   true if the location can be shown to other players, false if it cannot
      */
-    public Shop(Location shopLocation, double shopPrice, Player owner, boolean showLocationToOtherPlayers) {
+    public Shop(Location shopLocation, Money shopPrice, Player owner, boolean showLocationToOtherPlayers) {
         this.location = shopLocation;
-        this.fixedPrice = shopPrice;
+        this.fixedPrice = shopPrice.getCents();
         this.shopOwner = owner.getUniqueId();
         this.serial = StringUtils.generateSerialCode(4, 4, '-');
         this.isLocationPublic = showLocationToOtherPlayers;
@@ -174,7 +176,7 @@ public class Shop {
 
                 if (clicked.getType().equals(Material.WHITE_STAINED_GLASS_PANE)) return;
 
-                /*if (player.getMoney() < shop.getFixedPrice()) {
+                /*if (player.getMoney().isLowerThan(shop.getFixedPrice())) {
                     e.getWhoClicked().sendMessage(ShopError.NOT_ENOUGH_MONEY.getMessage());
                     return;
                 }*/
@@ -204,6 +206,11 @@ public class Shop {
                 assert owner != null;
                 owner.addMoney(shop.getFixedPrice());
 
+                TradeRecorder.record(TradeKind.PLAYER_SHOP_BUY, bought.getType(), e.getWhoClicked().getUniqueId(),
+                        1, shop.getFixedPrice(), newAmount);
+                TradeRecorder.record(TradeKind.PLAYER_SHOP_SELL, bought.getType(), owner.getUniqueId(),
+                        1, shop.getFixedPrice(), newAmount);
+
                 player.refreshScoreboard();
             });
         }
@@ -240,8 +247,8 @@ public class Shop {
      *
      * @return The price for any item in this Shop
      */
-    public double getFixedPrice() {
-        return this.fixedPrice;
+    public Money getFixedPrice() {
+        return Money.ofCents(this.fixedPrice);
     }
 
     /**
@@ -0,0 +1,212 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.ShopItemType;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog file of the Global Shop: the ShopItemType and base price of every Material it sells,
+ * in FILE_NAME in the plugin folder. It is written from the built-in classification the first time
+ * the plugin is enabled, and from then on it is what the shop sells.
+ * <p>
+ * The file is watched with a WatchService on its own thread, so a change is applied while the server runs:
+ * the file is parsed on that thread, then GlobalShop#applyCatalog() updates only the items that changed,
+ * on the main thread. A file that can't be parsed is ignored, and the catalog stays as it was.
+ * <pre>
+ * items:
+ *   STONE:
+ *     type: BLOCK
+ *     price: 50.0
+ * </pre>
+ */
+public class ShopCatalog {
+    public static final String FILE_NAME = "catalog.yml";
+    /// How long the file must stay unchanged before it is reloaded, so that an editor that saves it in several writes causes one reload
+    private static final long DEBOUNCE_MILLIS = 500;
+    private static final Material[] MATERIALS = Material.values();
+
+    private final Plugin plugin;
+    private final File file;
+    @Nullable
+    private Thread watcher = null;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a ShopCatalog for the catalog file of a plugin
+     *
+     * @param plugin The main plugin instance
+     */
+    public ShopCatalog(Plugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+    }
+
+    /**
+     * Loads the catalog file, or writes it from the built-in classification if it doesn't exist.
+     * It must be called on the main thread before the shop is initialized
+     */
+    public void load() {
+        GlobalShop.classifyMaterials();
+
+        if (!file.exists()) {
+            try {
+                this.writeDefaults();
+            } catch (IOException e) {
+                Bukkit.getLogger().warning("Could not write the catalog file " + FILE_NAME + ": " + e.getMessage());
+            }
+            return;
+        }
+
+        Catalog catalog = parse(file);
+        if (catalog != null) GlobalShop.applyCatalog(catalog.types, catalog.prices);
+    }
+
+    /**
+     * Starts watching the catalog file for changes
+     *
+     * @throws IOException If the plugin folder can't be watched
+     */
+    public void watch() throws IOException {
+        WatchService service = FileSystems.getDefault().newWatchService();
+        file.getParentFile().toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        running = true;
+        watcher = new Thread(() -> this.run(service), "tonii-shops catalog watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void run(WatchService service) {
+        long changedAt = -1;
+
+        try (service) {
+            while (running) {
+                WatchKey key = service.poll(100, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path path && path.toString().equals(FILE_NAME)) {
+                            changedAt = System.currentTimeMillis();
+                        }
+                    }
+                    key.reset();
+                }
+
+                if (changedAt == -1 || System.currentTimeMillis() - changedAt < DEBOUNCE_MILLIS) continue;
+                changedAt = -1;
+
+                Catalog catalog = parse(file);
+                if (catalog == null) continue;
+
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        GlobalShop.applyCatalog(catalog.types, catalog.prices);
+                    }
+                }.runTask(plugin);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Stopped watching the catalog file " + FILE_NAME + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching the catalog file
+     */
+    public void close() {
+        running = false;
+        if (watcher != null) watcher.interrupt();
+    }
+
+    /**
+     * The classification a catalog file describes, in the format of GlobalShop#applyCatalog()
+     */
+    private record Catalog(byte[] types, long[] prices) {
+    }
+
+    /**
+     * Parses a catalog file. It can be called from any thread. Materials that are not in the file are not
+     * sold. Entries that are not valid are reported, and leave their Material as it is
+     *
+     * @return The classification, or null if the file can't be read or parsed
+     */
+    @Nullable
+    private static Catalog parse(File file) {
+        YamlConfiguration configuration = new YamlConfiguration();
+        try {
+            configuration.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            Bukkit.getLogger().warning("Could not read the catalog file " + FILE_NAME + ", it is ignored: " + e.getMessage());
+            return null;
+        }
+
+        ConfigurationSection section = configuration.getConfigurationSection("items");
+        if (section == null) {
+            Bukkit.getLogger().warning("The catalog file " + FILE_NAME + " has no items section, it is ignored.");
+            return null;
+        }
+
+        byte[] types = new byte[MATERIALS.length];
+        long[] prices = new long[MATERIALS.length];
+        Arrays.fill(types, (byte) -1);
+
+        for (String name : section.getKeys(false)) {
+            Material material = Material.getMaterial(name.toUpperCase(Locale.ROOT));
+            if (material == null) {
+                Bukkit.getLogger().warning("Unknown Material in " + FILE_NAME + ": " + name);
+                continue;
+            }
+
+            int i = material.ordinal();
+            String type = section.getString(name + ".type", "");
+            Object value = section.get(name + ".price");
+            Money price = value instanceof Number number ? Money.of(number.doubleValue()) : Money.parse(String.valueOf(value));
+            ShopItemType shopItemType = Arrays.stream(ShopItemType.values())
+                    .filter(x -> x.name().equalsIgnoreCase(type))
+                    .findFirst().orElse(null);
+
+            if (shopItemType == null || price == null || price.getCents() <= 0) {
+                Bukkit.getLogger().warning("Invalid entry in " + FILE_NAME + ", " + name + " is left as it was: " +
+                        "it needs a type (one of " + Arrays.toString(ShopItemType.values()) + ") and a positive price.");
+                types[i] = -2;
+                continue;
+            }
+
+            types[i] = (byte) shopItemType.ordinal();
+            prices[i] = price.getCents();
+        }
+        return new Catalog(types, prices);
+    }
+
+    /// Writes the classification the shop has now
+    private void writeDefaults() throws IOException {
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.options().setHeader(List.of(
+                "The Materials the Global Shop sells, with their category (" + Arrays.toString(ShopItemType.values()) + ")",
+                "and their base price. Changes are applied while the server runs: the items that changed are updated",
+                "in place, keeping their amount on the market and their history. Remove a Material to stop selling it."));
+
+        for (Material material : MATERIALS) {
+            ShopItemType type = GlobalShop.getMaterialType(material);
+            if (type == null) continue;
+            configuration.set("items." + material.name() + ".type", type.name());
+            configuration.set("items." + material.name() + ".price", GlobalShop.getBasePrice(material).toDouble());
+        }
+        configuration.save(file);
+    }
+}
@@ -0,0 +1,287 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Streams every trade to one gzip compressed CSV file per day, for the accounting team.
+ * <p>
+ * The main thread only copies the trade into a bounded single-producer single-consumer ring of
+ * primitive arrays, and a single writer thread formats and compresses it, so the main thread never
+ * waits for the disk or for compression. If the writer falls behind and the ring is full, trades are
+ * dropped from the export (they are still in the trade journal) and counted.
+ * <p>
+ * Day files are named FILE_PREFIX + yyyy-MM-dd + FILE_EXTENSION. When the plugin is enabled again on
+ * the same day, it writes a new part of the day, named FILE_PREFIX + yyyy-MM-dd + "-" + n + FILE_EXTENSION,
+ * instead of appending to the file: if the server stopped without closing it, the file has no gzip trailer,
+ * and gzip readers can't read anything written after it.
+ */
+public class TradeExporter {
+    public static final int CAPACITY = 8192;
+    public static final String FILE_PREFIX = "trades-";
+    public static final String FILE_EXTENSION = ".csv.gz";
+    public static final String HEADER = "time,kind,material,player,amount,price,stock_after\n";
+    /// How often the writer flushes the file of the day while it waits for trades
+    private static final long FLUSH_NANOS = 1_000_000_000L;
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final TradeKind[] KINDS = TradeKind.values();
+
+    private final File directory;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final long[] time = new long[CAPACITY];
+    private final int[] kind = new int[CAPACITY];
+    private final int[] material = new int[CAPACITY];
+    private final long[] playerMost = new long[CAPACITY];
+    private final long[] playerLeast = new long[CAPACITY];
+    private final long[] amount = new long[CAPACITY];
+    private final long[] price = new long[CAPACITY];
+    private final long[] stockAfter = new long[CAPACITY];
+    /// Only the main thread writes 'written', only the writer thread writes 'read'
+    private volatile long written = 0;
+    private volatile long read = 0;
+    private long dropped = 0;
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /// Only used by the writer thread
+    private Writer out = null;
+    private long dayStart = Long.MAX_VALUE;
+    private long dayEnd = Long.MIN_VALUE;
+
+    /**
+     * Creates a TradeExporter and starts its writer thread
+     *
+     * @param directory The directory of the day files
+     * @throws IOException If the directory can't be created
+     */
+    public TradeExporter(File directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+
+        this.writer = new Thread(this::run, "tonii-shops trade exporter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a trade to be exported. It never blocks and allocates nothing
+     *
+     * @return false if the ring was full and the trade has been dropped
+     */
+    public boolean offer(long time, TradeKind kind, int material, long playerMost, long playerLeast,
+                         long amount, long price, long stockAfter) {
+        long sequence = this.written;
+        if (sequence - this.read >= CAPACITY) {
+            dropped++;
+            return false;
+        }
+
+        int i = (int) (sequence % CAPACITY);
+        this.time[i] = time;
+        this.kind[i] = kind.ordinal();
+        this.material[i] = material;
+        this.playerMost[i] = playerMost;
+        this.playerLeast[i] = playerLeast;
+        this.amount[i] = amount;
+        this.price[i] = price;
+        this.stockAfter[i] = stockAfter;
+        /// Publishing the new sequence makes the slot visible to the writer thread
+        this.written = sequence + 1;
+        return true;
+    }
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+
+        while (true) {
+            long sequence = this.read;
+            if (sequence == this.written) {
+                if (!running) break;
+                if (dirty && System.nanoTime() - lastFlush >= FLUSH_NANOS) {
+                    this.flush();
+                    lastFlush = System.nanoTime();
+                    dirty = false;
+                }
+                LockSupport.parkNanos(10_000_000L);
+                continue;
+            }
+
+            int i = (int) (sequence % CAPACITY);
+            try {
+                this.write(i);
+                dirty = true;
+            } catch (IOException e) {
+                Bukkit.getLogger().warning("Could not export a trade: " + e.getMessage());
+                this.closeDay();
+            }
+            this.read = sequence + 1;
+        }
+
+        this.closeDay();
+    }
+
+    private void write(int i) throws IOException {
+        long time = this.time[i];
+        if (out == null || time < dayStart || time >= dayEnd) this.openDay(time);
+
+        TradeKind kind = this.kind[i] < KINDS.length ? KINDS[this.kind[i]] : null;
+        String material = this.material[i] >= 0 && this.material[i] < MATERIALS.length ? MATERIALS[this.material[i]].name() : "";
+
+        out.write(Instant.ofEpochMilli(time).toString());
+        out.write(',');
+        out.write(kind == null ? "" : kind.name());
+        out.write(',');
+        out.write(material);
+        out.write(',');
+        out.write(new UUID(playerMost[i], playerLeast[i]).toString());
+        out.write(',');
+        out.write(Long.toString(amount[i]));
+        out.write(',');
+        out.write(Money.ofCents(price[i]).toString());
+        out.write(',');
+        out.write(Long.toString(stockAfter[i]));
+        out.write('\n');
+    }
+
+    /// Closes the file of the previous day, if any, and opens the file of the day of the specified time
+    private void openDay(long time) throws IOException {
+        this.closeDay();
+
+        LocalDate day = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+        dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        int part = 0;
+        while (getDayFile(directory, day, part).exists()) part++;
+        out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(getDayFile(directory, day, part)), 64 * 1024, true), StandardCharsets.UTF_8));
+        out.write(HEADER);
+    }
+
+    private void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Could not flush the trade export: " + e.getMessage());
+        }
+    }
+
+    private void closeDay() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("Could not close the trade export: " + e.getMessage());
+        }
+        out = null;
+    }
+
+    /**
+     * Stops the writer thread once it has written every queued trade, and closes the file of the day
+     */
+    public void close() {
+        running = false;
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many trades were dropped from the export because the writer fell behind
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets a part of the file of a day. Every time the plugin is enabled on the same day, it writes a new part
+     *
+     * @param directory The directory of the day files
+     * @param day       The day
+     * @param part      The part, starting from 0
+     * @return The file of the part, that may not exist
+     */
+    public static File getDayFile(File directory, LocalDate day, int part) {
+        return new File(directory, FILE_PREFIX + day + (part == 0 ? "" : "-" + part) + FILE_EXTENSION);
+    }
+
+    /**
+     * Joins the day files of a range of days into a single gzip compressed CSV file. The files are
+     * streamed through a small buffer, so the range is never loaded in memory. It must be called
+     * off the main thread. Days without a file are skipped, and a day file that is still being
+     * written, or that the server never closed, is copied up to the last flushed trade
+     *
+     * @param directory The directory of the day files
+     * @param from      The first day of the range
+     * @param to        The last day of the range, included
+     * @return The exported file
+     * @throws IOException If a file can't be read or written
+     */
+    public static File export(File directory, LocalDate from, LocalDate to) throws IOException {
+        File file = new File(directory, "export-" + from + "-" + to + FILE_EXTENSION);
+        File temporary = new File(directory, file.getName() + ".tmp");
+        byte[] buffer = new byte[64 * 1024];
+
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(temporary), buffer.length)) {
+            out.write(HEADER.getBytes(StandardCharsets.UTF_8));
+
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                for (int part = 0; ; part++) {
+                    File dayFile = getDayFile(directory, day, part);
+                    if (!dayFile.exists()) break;
+                    copyDayFile(dayFile, out, buffer);
+                }
+            }
+        }
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    /// Copies the trades of a day file, without its header, up to the end of what can be read of it
+    private static void copyDayFile(File dayFile, OutputStream out, byte[] buffer) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(dayFile), buffer.length)) {
+            /// Every day file starts with the header, which is already written
+            int skip = HEADER.length();
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                int offset = Math.min(skip, read);
+                skip -= offset;
+                out.write(buffer, offset, read - offset);
+            }
+        } catch (EOFException e) {
+            /// The file is still being written, or the server stopped before closing it
+        } catch (ZipException e) {
+            /// Files written before the parts were split can have a member after one that was never closed
+            Bukkit.getLogger().warning("Could not read all of " + dayFile.getName() + ", only the trades before " +
+                    "the damaged part were exported: " + e.getMessage());
+        }
+    }
+}
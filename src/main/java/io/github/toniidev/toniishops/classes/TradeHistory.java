@@ -0,0 +1,212 @@
+package io.github.toniidev.toniishops.classes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * The last trades of one side (buys or sells) of a GlobalShopItem. Trades are stored in a
+ * fixed-capacity ring buffer of parallel primitive arrays, so the memory of a history is bounded,
+ * adding a trade allocates nothing, and no Player instance is kept after he logs out.
+ * When the buffer is full, the oldest trade is overwritten.
+ * Trades are indexed from 0 (the oldest one still stored) to size() - 1 (the newest one).
+ */
+public class TradeHistory {
+    /**
+     * How many trades of each side a GlobalShopItem remembers
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final long[] time;
+    private final long[] playerMost;
+    private final long[] playerLeast;
+    private final long[] amount;
+    /// The price of each trade, in cents. See Money
+    private final long[] price;
+
+    /// The index the next trade is written at
+    private int head = 0;
+    private int size = 0;
+    /// How many trades were ever added, so that a trade can be found again after newer ones are added
+    private long total = 0;
+
+    /**
+     * Creates an empty TradeHistory
+     *
+     * @param capacity How many trades it can store before overwriting the oldest ones
+     */
+    public TradeHistory(int capacity) {
+        this.time = new long[capacity];
+        this.playerMost = new long[capacity];
+        this.playerLeast = new long[capacity];
+        this.amount = new long[capacity];
+        this.price = new long[capacity];
+    }
+
+    /**
+     * Adds a trade to this history, overwriting the oldest one if it is full
+     *
+     * @param time   The time of the trade, in milliseconds
+     * @param player The UUID of the player that traded
+     * @param amount The amount of items traded
+     * @param price  The price of the whole trade
+     */
+    public void add(long time, UUID player, long amount, Money price) {
+        this.add(time, player.getMostSignificantBits(), player.getLeastSignificantBits(), amount, price.getCents());
+    }
+
+    /**
+     * Adds a trade to this history, overwriting the oldest one if it is full
+     *
+     * @param time        The time of the trade, in milliseconds
+     * @param playerMost  The most significant bits of the UUID of the player that traded
+     * @param playerLeast The least significant bits of the UUID of the player that traded
+     * @param amount      The amount of items traded
+     * @param price       The price of the whole trade, in cents
+     */
+    public void add(long time, long playerMost, long playerLeast, long amount, long price) {
+        this.time[head] = time;
+        this.playerMost[head] = playerMost;
+        this.playerLeast[head] = playerLeast;
+        this.amount[head] = amount;
+        this.price[head] = price;
+
+        head = (head + 1) % this.time.length;
+        if (size < this.time.length) size++;
+        total++;
+    }
+
+    /// Converts an index from the oldest trade to a position in the arrays
+    private int slot(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return (head - size + i + this.time.length) % this.time.length;
+    }
+
+    public long getTime(int i) {
+        return time[slot(i)];
+    }
+
+    public UUID getPlayer(int i) {
+        int slot = slot(i);
+        return new UUID(playerMost[slot], playerLeast[slot]);
+    }
+
+    public long getAmount(int i) {
+        return amount[slot(i)];
+    }
+
+    public Money getPrice(int i) {
+        return Money.ofCents(price[slot(i)]);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many trades are stored, at most the capacity
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many trades were ever added to this history. The trade at index i is
+     * the (getTotal() - size() + i)-th trade ever added
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCapacity() {
+        return time.length;
+    }
+
+    /**
+     * Copies this history, so that it can be written by another thread while this one keeps changing.
+     * Only the trades that are stored are copied, oldest first, so the copy is as big as they are
+     * and not as the capacity of this history
+     *
+     * @return A new TradeHistory with the same trades, and a capacity equal to their amount
+     */
+    public TradeHistory copy() {
+        TradeHistory value = new TradeHistory(Math.max(1, size));
+        int start = size == 0 ? 0 : slot(0);
+        /// The trades wrap around the end of the arrays at most once
+        int first = Math.min(size, time.length - start);
+        copyRange(value, start, 0, first);
+        copyRange(value, 0, first, size - first);
+
+        value.head = size % value.time.length;
+        value.size = size;
+        value.total = total;
+        return value;
+    }
+
+    private void copyRange(TradeHistory value, int from, int to, int length) {
+        System.arraycopy(time, from, value.time, to, length);
+        System.arraycopy(playerMost, from, value.playerMost, to, length);
+        System.arraycopy(playerLeast, from, value.playerLeast, to, length);
+        System.arraycopy(amount, from, value.amount, to, length);
+        System.arraycopy(price, from, value.price, to, length);
+    }
+
+    /**
+     * Replaces the trades of this history with the trades of another one. If they are more
+     * than the capacity of this history, only the newest ones are kept
+     *
+     * @param other The history to copy the trades of
+     */
+    public void copyFrom(TradeHistory other) {
+        head = 0;
+        size = 0;
+        for (int i = 0; i < other.size; i++) {
+            int slot = other.slot(i);
+            this.add(other.time[slot], other.playerMost[slot], other.playerLeast[slot], other.amount[slot], other.price[slot]);
+        }
+        total = other.total;
+    }
+
+    /**
+     * Writes the trades of this history, oldest first. See read()
+     *
+     * @param out Where to write them
+     * @throws IOException If they can't be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(total);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            int slot = slot(i);
+            out.writeLong(time[slot]);
+            out.writeLong(playerMost[slot]);
+            out.writeLong(playerLeast[slot]);
+            out.writeLong(amount[slot]);
+            out.writeLong(price[slot]);
+        }
+    }
+
+    /**
+     * Replaces the trades of this history with trades written by write(). If they are more
+     * than the capacity of this history, only the newest ones are kept
+     *
+     * @param in Where to read them from
+     * @throws IOException If they can't be read
+     */
+    public void read(DataInput in) throws IOException {
+        long written = in.readLong();
+        int count = in.readInt();
+
+        head = 0;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            this.add(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+        }
+        total = written;
+    }
+}
@@ -0,0 +1,288 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Indexes the trades of the TradeJournal by player and time, so that the trades of a player since
+ * a certain time are found in O(log n + k), however many trades were recorded.
+ * <p>
+ * In memory, each player has a posting list: the times and the journal locations of his trades, in
+ * parallel primitive arrays sorted by time. On disk, every sealed segment gets an INDEX_EXTENSION file
+ * next to it, with one ENTRY_SIZE bytes entry for each of its records (player UUID, time, position),
+ * sorted by player and time. It is written off the main thread as soon as the segment is sealed, so
+ * on startup the posting lists are loaded from the index files, and only the segment that was being
+ * written has to be scanned.
+ */
+public class TradeIndex {
+    /**
+     * How many trades a page of a query contains
+     */
+    public static final int PAGE_SIZE = 10;
+    public static final String INDEX_EXTENSION = ".idx";
+    private static final int ENTRY_SIZE = 32;
+
+    private final Plugin plugin;
+    private final TradeJournal journal;
+    private final Map<UUID, Postings> postings = new HashMap<>();
+
+    /// The entries of the segment that is being written, as (UUID most, UUID least, time, position)
+    /// quadruples. They are written to its index file once the segment is sealed
+    private long[] pending = new long[4 * 1024];
+    private int pendingSize = 0;
+    private long pendingSequence;
+
+    /**
+     * The trades of one player, sorted by time
+     */
+    private static final class Postings {
+        private long[] times = new long[8];
+        private long[] locations = new long[8];
+        private int size = 0;
+
+        void add(long time, long location) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            times[size] = time;
+            locations[size] = location;
+            size++;
+        }
+
+        /// Removes the trades before the specified location, which are the oldest ones
+        void removeBefore(long location) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (locations[mid] < location) low = mid + 1;
+                else high = mid;
+            }
+            if (low == 0) return;
+
+            System.arraycopy(times, low, times, 0, size - low);
+            System.arraycopy(locations, low, locations, 0, size - low);
+            size -= low;
+        }
+
+        /// The index of the first trade at or after the specified time
+        int indexOf(long since) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] < since) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Creates the index of a journal, loading the index files of its sealed segments
+     * and scanning the segment that is being written. Sealed segments without an index file
+     * are scanned too, and their index file is written
+     *
+     * @param plugin  The main plugin instance, that writes the index files off the main thread
+     * @param journal The journal to index
+     * @throws IOException If a segment or an index file can't be read
+     */
+    public TradeIndex(Plugin plugin, TradeJournal journal) throws IOException {
+        this.plugin = plugin;
+        this.journal = journal;
+        this.pendingSequence = journal.getSequence();
+
+        for (File segment : TradeJournal.getSegments(journal.getDirectory())) {
+            long sequence = TradeJournal.getSequence(segment);
+            File index = getIndexFile(segment);
+
+            if (sequence < journal.getSequence() && index.exists()) {
+                this.load(index, sequence);
+                continue;
+            }
+
+            long[][] entries = {new long[4 * 1024]};
+            int[] size = {0};
+            TradeJournal.scan(journal.getDirectory(), segment, (position, time, kind, material, playerMost, playerLeast,
+                                                                amount, price, stockAfter) -> {
+                TradeKind value = TradeKind.fromOrdinal(kind);
+                if (value == null || !value.isTrade()) return;
+                this.getPostings(new UUID(playerMost, playerLeast)).add(time, TradeJournal.getLocation(sequence, position));
+
+                if (size[0] + 4 > entries[0].length) entries[0] = Arrays.copyOf(entries[0], entries[0].length * 2);
+                entries[0][size[0]++] = playerMost;
+                entries[0][size[0]++] = playerLeast;
+                entries[0][size[0]++] = time;
+                entries[0][size[0]++] = position;
+            });
+
+            if (sequence < journal.getSequence()) {
+                writeIndex(index, entries[0], size[0]);
+            } else {
+                this.pending = entries[0];
+                this.pendingSize = size[0];
+            }
+        }
+    }
+
+    /**
+     * Adds a trade that has just been appended to the journal. It allocates nothing,
+     * unless the player never traded before or his posting list has to grow
+     *
+     * @param player   The UUID of the player that traded
+     * @param time     The time of the trade, in milliseconds
+     * @param location The location of the record in the journal
+     */
+    public void add(UUID player, long time, long location) {
+        long sequence = location >>> 32;
+        if (sequence != this.pendingSequence) {
+            this.seal();
+            this.pendingSequence = sequence;
+        }
+
+        if (pendingSize + 4 > pending.length) pending = Arrays.copyOf(pending, pending.length * 2);
+        pending[pendingSize++] = player.getMostSignificantBits();
+        pending[pendingSize++] = player.getLeastSignificantBits();
+        pending[pendingSize++] = time;
+        pending[pendingSize++] = (int) location;
+
+        this.getPostings(player).add(time, location);
+    }
+
+    /**
+     * Forgets the trades of the segments before a sequence number, after they have been archived.
+     * See TradeJournal#archive()
+     *
+     * @param before The sequence number of the first segment that is still in the journal
+     */
+    public void forget(long before) {
+        long location = TradeJournal.getLocation(before, 0);
+        Iterator<Postings> iterator = postings.values().iterator();
+        while (iterator.hasNext()) {
+            Postings list = iterator.next();
+            list.removeBefore(location);
+            if (list.size == 0) iterator.remove();
+        }
+    }
+
+    /**
+     * Counts the trades of a player since the specified time
+     *
+     * @param player The UUID of the player
+     * @param since  The time to count from, in milliseconds
+     * @return The amount of trades of the player at or after that time
+     */
+    public int count(UUID player, long since) {
+        Postings value = postings.get(player);
+        return value == null ? 0 : value.size - value.indexOf(since);
+    }
+
+    /**
+     * Gets one page of the trades of a player since the specified time. Only the records
+     * of that page are read from the journal
+     *
+     * @param player The UUID of the player
+     * @param since  The time to start from, in milliseconds
+     * @param page   The page, starting from 0
+     * @return At most PAGE_SIZE trades, oldest first
+     */
+    public List<TradeRecord> getPage(UUID player, long since, int page) {
+        List<TradeRecord> value = new ArrayList<>();
+        Postings list = postings.get(player);
+        if (list == null || page < 0) return value;
+
+        long first = list.indexOf(since) + (long) page * PAGE_SIZE;
+        for (long i = first; i < list.size && i < first + PAGE_SIZE; i++) {
+            TradeRecord record = journal.read(list.locations[(int) i]);
+            if (record != null) value.add(record);
+        }
+        return value;
+    }
+
+    private Postings getPostings(UUID player) {
+        Postings value = postings.get(player);
+        if (value == null) {
+            value = new Postings();
+            postings.put(player, value);
+        }
+        return value;
+    }
+
+    /**
+     * Hands the entries of the sealed segment to a thread that writes its index file
+     */
+    private void seal() {
+        long[] entries = this.pending;
+        int size = this.pendingSize;
+        File file = getIndexFile(new File(journal.getDirectory(), TradeJournal.getSegmentName(this.pendingSequence)));
+
+        this.pending = new long[4 * 1024];
+        this.pendingSize = 0;
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                writeIndex(file, entries, size);
+            } catch (IOException e) {
+                Bukkit.getLogger().warning("Could not write the trade index " + file.getName() + ", it will be rebuilt on the next start: " + e.getMessage());
+            }
+        });
+    }
+
+    private void load(File index, long sequence) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index)))) {
+            long entries = index.length() / ENTRY_SIZE;
+            UUID player = null;
+            Postings list = null;
+
+            for (long i = 0; i < entries; i++) {
+                long most = in.readLong();
+                long least = in.readLong();
+                long time = in.readLong();
+                long position = in.readLong();
+
+                /// Entries are sorted by player, so the posting list only has to be searched when the player changes
+                if (player == null || player.getMostSignificantBits() != most || player.getLeastSignificantBits() != least) {
+                    player = new UUID(most, least);
+                    list = this.getPostings(player);
+                }
+                list.add(time, TradeJournal.getLocation(sequence, (int) position));
+            }
+        }
+    }
+
+    /**
+     * Sorts the entries of a segment by player and time, and writes them to its index file.
+     * The file is written under another name first, so a crash never leaves half an index behind
+     */
+    private static void writeIndex(File file, long[] entries, int size) throws IOException {
+        Integer[] order = new Integer[size / 4];
+        for (int i = 0; i < order.length; i++) order[i] = i * 4;
+        Arrays.sort(order, (a, b) -> {
+            int value = Long.compare(entries[a], entries[b]);
+            if (value == 0) value = Long.compare(entries[a + 1], entries[b + 1]);
+            if (value == 0) value = Long.compare(entries[a + 2], entries[b + 2]);
+            return value;
+        });
+
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            for (int i : order) {
+                out.writeLong(entries[i]);
+                out.writeLong(entries[i + 1]);
+                out.writeLong(entries[i + 2]);
+                out.writeLong(entries[i + 3]);
+            }
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static File getIndexFile(File segment) {
+        String name = segment.getName();
+        return new File(segment.getParentFile(), name.substring(0, name.length() - TradeJournal.SEGMENT_EXTENSION.length()) + INDEX_EXTENSION);
+    }
+}
@@ -0,0 +1,454 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import io.github.toniidev.toniishops.interfaces.TradeRecordConsumer;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only binary journal of every trade. Records have a fixed size and are written into
+ * memory-mapped segment files, so appending a trade is a copy into the page cache: it costs a few
+ * microseconds, allocates nothing and survives a crash of the server process. Segments are flushed
+ * to disk every FLUSH_PERIOD server ticks off the main thread, and when the plugin is disabled.
+ * <p>
+ * Each segment starts with a HEADER_SIZE bytes header:
+ * magic (int), format version (int), hash of the Material names (long), sequence number (long), creation time (long).
+ * Then records of RECORD_SIZE bytes follow:
+ * time (long), TradeKind ordinal (int), Material ordinal (int), player UUID (2 longs),
+ * amount (long), price in cents (long), stock after the trade (long), unused (int), CRC32 of the previous bytes (int).
+ * The segment ends at the first record whose time is 0 or whose CRC doesn't match.
+ * <p>
+ * Materials are stored by ordinal, which changes between API versions. The names of the Materials of each
+ * hash are written once in a MATERIALS_EXTENSION file next to the segments, so that old segments can still be read.
+ */
+public class TradeJournal {
+    public static final int MAGIC = 0x544A524E;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 64;
+    /// 16 MiB, that is 262143 records per segment
+    public static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final String SEGMENT_PREFIX = "journal-";
+    public static final String SEGMENT_EXTENSION = ".dat";
+    public static final String MATERIALS_EXTENSION = ".materials";
+    /**
+     * How often the journal is flushed to disk, in server ticks (20 ticks = 1 second)
+     */
+    public static final long FLUSH_PERIOD = 100;
+
+    /// The hash of the names of the Materials of this server, in ordinal order
+    public static final long MATERIALS_HASH = hashMaterials(Material.values());
+
+    private static final Material[] MATERIALS = Material.values();
+    /// The tables that convert old Material ordinals, by Materials hash. See getMaterialTable()
+    private static final Map<Long, int[]> materialTables = new HashMap<>();
+
+    private final File directory;
+    /// Read-only mappings of the segments queries read from, the most recently used ones
+    private final Map<Long, ByteBuffer> readers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest) {
+            return size() > 8;
+        }
+    };
+    /// The mapped segment records are appended to. It is replaced when the segment rolls, while
+    /// flush() may be reading it from another thread
+    private volatile MappedByteBuffer segment;
+    private long sequence;
+    private int position;
+
+    /// Every record is encoded here first, so that the CRC can be computed without allocating anything
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Opens the journal in the specified directory. Records are appended to the last segment,
+     * after its last valid record. If there are no segments, or the last one was written
+     * with other Materials, a new segment is started
+     *
+     * @param directory The directory of the segment files
+     * @throws IOException If the directory or the segment can't be created or mapped
+     */
+    public TradeJournal(File directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+        this.writeMaterials();
+
+        List<File> segments = getSegments(directory);
+        if (!segments.isEmpty()) {
+            File last = segments.getLast();
+            this.sequence = getSequence(last);
+            this.segment = map(last);
+
+            if (this.segment.getInt(0) == MAGIC && this.segment.getLong(8) == MATERIALS_HASH) {
+                this.position = findEnd(this.segment, this.crc);
+                return;
+            }
+        }
+
+        this.roll();
+    }
+
+    /**
+     * Appends a trade to the journal, starting a new segment if the current one is full.
+     * If the new segment can't be created, the journal stops recording and logs why
+     *
+     * @return The location of the record (see getLocation()), or -1 if it couldn't be recorded
+     */
+    public long append(long time, TradeKind kind, int material, long playerMost, long playerLeast,
+                       long amount, long price, long stockAfter) {
+        if (this.segment == null) return -1;
+        if (this.position + RECORD_SIZE > SEGMENT_SIZE) {
+            try {
+                this.roll();
+            } catch (IOException e) {
+                Bukkit.getLogger().severe("Could not start a new trade journal segment, trades won't be recorded: " + e.getMessage());
+                this.segment = null;
+                return -1;
+            }
+        }
+
+        record.putLong(0, time)
+                .putInt(8, kind.ordinal())
+                .putInt(12, material)
+                .putLong(16, playerMost)
+                .putLong(24, playerLeast)
+                .putLong(32, amount)
+                .putLong(40, price)
+                .putLong(48, stockAfter)
+                .putInt(56, 0);
+        crc.reset();
+        crc.update(scratch, 0, RECORD_SIZE - 4);
+        record.putInt(RECORD_SIZE - 4, (int) crc.getValue());
+
+        this.segment.put(this.position, scratch, 0, RECORD_SIZE);
+        long location = getLocation(this.sequence, this.position);
+        this.position += RECORD_SIZE;
+        return location;
+    }
+
+    /**
+     * Reads a record back from the journal
+     *
+     * @param location The location of the record, as returned by append()
+     * @return The record, or null if there is no valid record at that location
+     */
+    @Nullable
+    public TradeRecord read(long location) {
+        long sequence = location >>> 32;
+        int position = (int) location;
+
+        ByteBuffer segment = readers.get(sequence);
+        if (segment == null) {
+            File file = new File(directory, getSegmentName(sequence));
+            if (!file.exists()) return null;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } catch (IOException e) {
+                return null;
+            }
+            readers.put(sequence, segment);
+        }
+        if (position < HEADER_SIZE || position + RECORD_SIZE > segment.limit()) return null;
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        segment.get(position, record.array(), 0, RECORD_SIZE);
+        if (!isValidRecord(record, new CRC32())) return null;
+
+        TradeKind kind = TradeKind.fromOrdinal(record.getInt(8));
+        if (kind == null) return null;
+
+        int[] materials = getMaterialTable(directory, segment.getLong(8));
+        int ordinal = record.getInt(12);
+        int material = ordinal >= 0 && ordinal < materials.length ? materials[ordinal] : -1;
+        return new TradeRecord(record.getLong(0), kind, material == -1 ? null : MATERIALS[material],
+                new UUID(record.getLong(16), record.getLong(24)), record.getLong(32), record.getLong(40), record.getLong(48));
+    }
+
+    /**
+     * Reads every valid record of a segment, in order
+     *
+     * @param directory The directory of the journal
+     * @param file      The segment file to read
+     * @param consumer  What to do with each record
+     * @return false if the file is not a segment, or was written with Materials whose names are unknown
+     * @throws IOException If the file can't be read
+     */
+    public static boolean scan(File directory, File file, TradeRecordConsumer consumer) throws IOException {
+        ByteBuffer segment;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if (segment.limit() < HEADER_SIZE || segment.getInt(0) != MAGIC) return false;
+
+        int[] materials = getMaterialTable(directory, segment.getLong(8));
+        if (materials.length == 0) return false;
+
+        CRC32 crc = new CRC32();
+        byte[] scratch = new byte[RECORD_SIZE];
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        for (int position = HEADER_SIZE; position + RECORD_SIZE <= segment.limit(); position += RECORD_SIZE) {
+            segment.get(position, scratch, 0, RECORD_SIZE);
+            if (!isValidRecord(record, crc)) break;
+
+            int material = record.getInt(12);
+            consumer.accept(position, record.getLong(0), record.getInt(8),
+                    material >= 0 && material < materials.length ? materials[material] : -1,
+                    record.getLong(16), record.getLong(24), record.getLong(32), record.getLong(40), record.getLong(48));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the table that converts the Material ordinals of the segments written with the
+     * specified Materials hash into the Material ordinals of this server
+     *
+     * @param directory The directory of the journal
+     * @param hash      The Materials hash of the segment
+     * @return The table, where Materials that don't exist anymore are -1. It is empty if the names of the Materials are unknown
+     */
+    public static synchronized int[] getMaterialTable(File directory, long hash) {
+        int[] value = materialTables.get(hash);
+        if (value != null) return value;
+
+        if (hash == MATERIALS_HASH) {
+            value = new int[MATERIALS.length];
+            for (int i = 0; i < value.length; i++) value[i] = i;
+        } else {
+            File file = new File(directory, Long.toHexString(hash) + MATERIALS_EXTENSION);
+            try {
+                List<String> names = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+                value = new int[names.size()];
+                for (int i = 0; i < value.length; i++) {
+                    Material material = Material.getMaterial(names.get(i));
+                    value[i] = material == null ? -1 : material.ordinal();
+                }
+            } catch (IOException e) {
+                value = new int[0];
+            }
+        }
+
+        materialTables.put(hash, value);
+        return value;
+    }
+
+    /**
+     * Gets the location of a record, that identifies it in the whole journal.
+     * Its high half is the sequence number of the segment, its low half the position in it
+     *
+     * @param sequence The sequence number of its segment
+     * @param position Its position in the segment
+     * @return The location of the record
+     */
+    public static long getLocation(long sequence, int position) {
+        return (sequence << 32) | position;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The sequence number of the segment records are appended to
+     */
+    public long getSequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Gets the location the next record will be appended at. Every record appended before
+     * has a lower location
+     *
+     * @return The location, see getLocation()
+     */
+    public long getNextLocation() {
+        return getLocation(this.sequence, this.position);
+    }
+
+    /**
+     * Moves the sealed segments before a sequence number, and every file that belongs to them,
+     * into another directory, so that they are neither replayed nor indexed anymore.
+     * The segment records are appended to is never moved
+     *
+     * @param before  The sequence number of the first segment to keep
+     * @param archive The directory to move the segments to
+     * @return How many segments were moved
+     * @throws IOException If a file can't be moved
+     */
+    public int archive(long before, File archive) throws IOException {
+        Files.createDirectories(archive.toPath());
+
+        int value = 0;
+        for (File segment : getSegments(directory)) {
+            long sequence = getSequence(segment);
+            if (sequence >= before || sequence >= this.sequence) break;
+
+            readers.remove(sequence);
+            /// The segment and the files named after it, like its index
+            String name = segment.getName().substring(0, segment.getName().length() - SEGMENT_EXTENSION.length()) + ".";
+            File[] files = directory.listFiles((dir, file) -> file.startsWith(name));
+            if (files == null) continue;
+            for (File file : files) {
+                Files.move(file.toPath(), new File(archive, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            value++;
+        }
+
+        /// Archived segments still need the names of their Materials
+        File[] materials = directory.listFiles((dir, file) -> file.endsWith(MATERIALS_EXTENSION));
+        if (materials != null) {
+            for (File file : materials) {
+                Files.copy(file.toPath(), new File(archive, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The directory of the segment files
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Writes the pages of the current segment to disk. It can be called from any thread
+     */
+    public void flush() {
+        MappedByteBuffer current = this.segment;
+        if (current != null) current.force();
+    }
+
+    /**
+     * Flushes the journal and stops recording
+     */
+    public void close() {
+        this.flush();
+        this.segment = null;
+    }
+
+    /**
+     * Flushes the current segment and starts the next one.
+     * It happens once every SEGMENT_SIZE / RECORD_SIZE records, so the main thread rarely pays for it
+     */
+    private void roll() throws IOException {
+        this.flush();
+        this.sequence++;
+
+        MappedByteBuffer next = map(new File(directory, getSegmentName(this.sequence)));
+        next.putInt(0, MAGIC)
+                .putInt(4, FORMAT_VERSION)
+                .putLong(8, MATERIALS_HASH)
+                .putLong(16, this.sequence)
+                .putLong(24, System.currentTimeMillis());
+
+        this.segment = next;
+        this.position = HEADER_SIZE;
+    }
+
+    /// Writes the names of the Materials of this server, once for each hash
+    private void writeMaterials() throws IOException {
+        File file = new File(directory, Long.toHexString(MATERIALS_HASH) + MATERIALS_EXTENSION);
+        if (file.exists()) return;
+
+        StringBuilder builder = new StringBuilder();
+        for (Material material : Material.values()) builder.append(material.name()).append('\n');
+        Files.writeString(file.toPath(), builder, StandardCharsets.UTF_8);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < SEGMENT_SIZE) raf.setLength(SEGMENT_SIZE);
+            /// The mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /**
+     * Finds where the valid records of a segment end
+     *
+     * @param segment The segment to scan
+     * @param crc     The CRC32 instance to check the records with
+     * @return The position after the last valid record
+     */
+    public static int findEnd(ByteBuffer segment, CRC32 crc) {
+        byte[] scratch = new byte[RECORD_SIZE];
+        ByteBuffer record = ByteBuffer.wrap(scratch);
+        int position = HEADER_SIZE;
+        while (position + RECORD_SIZE <= segment.limit()) {
+            segment.get(position, scratch, 0, RECORD_SIZE);
+            if (!isValidRecord(record, crc)) break;
+            position += RECORD_SIZE;
+        }
+        return position;
+    }
+
+    /**
+     * Tells whether a record has been completely written
+     *
+     * @param record A heap buffer that wraps the RECORD_SIZE bytes of the record
+     * @param crc    The CRC32 instance to check the record with
+     * @return false if the record is empty or its CRC doesn't match
+     */
+    public static boolean isValidRecord(ByteBuffer record, CRC32 crc) {
+        if (record.getLong(0) == 0) return false;
+
+        crc.reset();
+        crc.update(record.array(), 0, RECORD_SIZE - 4);
+        return record.getInt(RECORD_SIZE - 4) == (int) crc.getValue();
+    }
+
+    /**
+     * Gets the segment files of a journal directory
+     *
+     * @param directory The directory of the journal
+     * @return The segment files, sorted by sequence number
+     */
+    public static List<File> getSegments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_EXTENSION));
+        if (files == null) return List.of();
+
+        Arrays.sort(files, (a, b) -> Long.compare(getSequence(a), getSequence(b)));
+        return List.of(files);
+    }
+
+    public static long getSequence(File segment) {
+        String name = segment.getName();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+    }
+
+    public static String getSegmentName(long sequence) {
+        return SEGMENT_PREFIX + String.format("%012d", sequence) + SEGMENT_EXTENSION;
+    }
+
+    /**
+     * Hashes the names of some Materials, in order
+     *
+     * @param materials The Materials to hash
+     * @return A hash that changes when a Material is added, removed or moved
+     */
+    public static long hashMaterials(Material[] materials) {
+        long value = 1125899906842597L;
+        for (Material material : materials) {
+            String name = material.name();
+            for (int i = 0; i < name.length(); i++) value = 31 * value + name.charAt(i);
+            value = 31 * value + '\n';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Material;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * A trade read back from the trade journal. TradeRecords are immutable and are only
+ * created for queries: the journal itself stores trades as primitives.
+ */
+public final class TradeRecord {
+    private final long time;
+    private final TradeKind kind;
+    @Nullable
+    private final Material material;
+    private final UUID player;
+    private final long amount;
+    /// The price of the whole trade, in cents. See Money
+    private final long price;
+    private final long stockAfter;
+
+    TradeRecord(long time, TradeKind kind, @Nullable Material material, UUID player, long amount, long price, long stockAfter) {
+        this.time = time;
+        this.kind = kind;
+        this.material = material;
+        this.player = player;
+        this.amount = amount;
+        this.price = price;
+        this.stockAfter = stockAfter;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public TradeKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The Material traded, or null if it doesn't exist in this server version anymore
+     */
+    @Nullable
+    public Material getMaterial() {
+        return material;
+    }
+
+    public UUID getPlayer() {
+        return player;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public Money getPrice() {
+        return Money.ofCents(price);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The amount of items on the market after the trade. For player shops,
+     * the amount of items left in the slot the item was bought from
+     */
+    public long getStockAfter() {
+        return stockAfter;
+    }
+}
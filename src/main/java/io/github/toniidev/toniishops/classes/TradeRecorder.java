@@ -0,0 +1,146 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+import org.bukkit.Material;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * The single place every trade goes through once it is completed: Global Shop trades,
+ * order fills and player shop purchases. It forwards each trade to the TradeJournal and its TradeIndex, and
+ * the trades of the Global Shop market to the CandleSeries of their Material and to the recent volume of its
+ * CategoryView. Every trade also updates the TradeStats of the player that made it and is watched by the
+ * AnomalyDetector, and is queued to the TradeExporter, which writes the daily audit files.
+ */
+public class TradeRecorder {
+    @Nullable
+    private static TradeJournal journal = null;
+    @Nullable
+    private static TradeIndex index = null;
+    @Nullable
+    private static TradeExporter exporter = null;
+
+    /**
+     * Default setter for this class
+     *
+     * @param value The journal trades have to be appended to, or null to stop recording them
+     */
+    public static void setJournal(@Nullable TradeJournal value) {
+        journal = value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The journal trades are appended to, or null if they are not being recorded
+     */
+    @Nullable
+    public static TradeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Default setter for this class
+     *
+     * @param value The index the journaled trades have to be added to, or null to stop indexing them
+     */
+    public static void setIndex(@Nullable TradeIndex value) {
+        index = value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The index of the journaled trades, or null if they are not being indexed
+     */
+    @Nullable
+    public static TradeIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Default setter for this class
+     *
+     * @param value The exporter trades have to be queued to, or null to stop exporting them
+     */
+    public static void setExporter(@Nullable TradeExporter value) {
+        exporter = value;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The exporter trades are queued to, or null if they are not being exported
+     */
+    @Nullable
+    public static TradeExporter getExporter() {
+        return exporter;
+    }
+
+    /**
+     * Records the amount on the market of a Material in the journal, so that replaying the
+     * journal also restores the changes restocks made. It is not a trade, so it is not indexed
+     *
+     * @param material The Material
+     * @param stock    The amount of items of the Material on the market
+     */
+    public static void recordStock(Material material, long stock) {
+        if (journal != null) {
+            journal.append(System.currentTimeMillis(), TradeKind.STOCK, material.ordinal(), 0, 0, 0, 0, stock);
+        }
+    }
+
+    /**
+     * Records an Order being placed or cancelled in the journal, so that replaying the journal after a crash
+     * puts back on their OrderBooks the Orders placed after the last MarketSnapshot, with the money they hold.
+     * It is not a trade, so it is not indexed
+     *
+     * @param kind  ORDER_PLACED_BUY, ORDER_PLACED_SELL or ORDER_CANCELLED
+     * @param order The Order
+     */
+    static void recordOrder(TradeKind kind, Order order) {
+        if (journal != null) {
+            UUID player = order.getPlayerUniqueID();
+            journal.append(System.currentTimeMillis(), kind, order.getMaterial().ordinal(), player.getMostSignificantBits(),
+                    player.getLeastSignificantBits(), order.getRemaining(), order.getLimitPriceCents(), order.getId());
+        }
+    }
+
+    /**
+     * Records a completed trade. It allocates nothing, so it can be called on every trade
+     *
+     * @param kind       The kind of trade
+     * @param material   The Material traded
+     * @param player     The UUID of the player that traded
+     * @param amount     The amount of items traded
+     * @param price      The price of the whole trade
+     * @param stockAfter The amount of items on the market after the trade. For player shops,
+     *                   the amount of items left in the slot the item was bought from
+     */
+    public static void record(TradeKind kind, Material material, UUID player, long amount, Money price, long stockAfter) {
+        long now = System.currentTimeMillis();
+
+        if (journal != null) {
+            long location = journal.append(now, kind, material.ordinal(), player.getMostSignificantBits(), player.getLeastSignificantBits(),
+                    amount, price.getCents(), stockAfter);
+            if (location != -1 && index != null) index.add(player, now, location);
+        }
+
+        TradeStats.record(kind, material.ordinal(), player, amount, price.getCents(), now);
+        AnomalyDetector.record(kind, material, player, amount, now);
+
+        if (exporter != null) {
+            exporter.offer(now, kind, material.ordinal(), player.getMostSignificantBits(), player.getLeastSignificantBits(),
+                    amount, price.getCents(), stockAfter);
+        }
+
+        CandleSeries.record(kind, material, now, price.getCents(), amount, stockAfter);
+
+        /// Player shops have their own fixed prices, which are not market prices,
+        /// and trades between two orders are recorded twice but only count once
+        if (!kind.isPlayerShop() && kind != TradeKind.MATCH_SELL) {
+            CategoryView.recordVolume(material.ordinal(), amount, now);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.enums.TradeKind;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Running trading statistics of every player, ranked by volume for the top traders leaderboard.
+ * <p>
+ * The PlayerStats of each player are updated in constant time on every trade, and are also the nodes
+ * of a treap ordered by volume (highest first) that keeps the size of every subtree. So a player only
+ * has to be moved in the treap when they trade, and both the rank of a player and the player at a rank
+ * are found in O(log n), without scanning the trades.
+ * It must only be used from the main thread.
+ */
+public class TradeStats {
+    private static final Map<UUID, PlayerStats> stats = new HashMap<>();
+    private static final Random random = new Random();
+    @Nullable
+    private static PlayerStats root = null;
+
+    /**
+     * Records a trade in the statistics of the player that made it
+     *
+     * @param kind     The kind of trade. Records that are not trades are ignored
+     * @param material The ordinal of the Material traded
+     * @param player   The UUID of the player that traded
+     * @param amount   The amount of items traded
+     * @param price    The price of the whole trade, in cents
+     * @param time     When the trade was made
+     */
+    public static void record(TradeKind kind, int material, UUID player, long amount, long price, long time) {
+        if (!kind.isTrade()) return;
+
+        PlayerStats value = stats.get(player);
+        if (value == null) {
+            value = new PlayerStats(player, random.nextInt());
+            stats.put(player, value);
+        } else {
+            root = remove(root, value);
+        }
+
+        value.add(kind.isBuy(), material, amount, price, time);
+        root = insert(root, value);
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @param player The UUID of the player
+     * @return The statistics of the player, or null if they never traded
+     */
+    @Nullable
+    public static PlayerStats getStats(UUID player) {
+        return stats.get(player);
+    }
+
+    /**
+     * Gets the amount of players that traded at least once
+     *
+     * @return The amount of ranked players
+     */
+    public static int size() {
+        return size(root);
+    }
+
+    /**
+     * Gets the position of a player in the leaderboard
+     *
+     * @param player The UUID of the player
+     * @return The rank of the player, starting from 1, or -1 if they never traded
+     */
+    public static int getRank(UUID player) {
+        PlayerStats target = stats.get(player);
+        if (target == null) return -1;
+
+        int rank = 1;
+        PlayerStats node = root;
+        while (node != null) {
+            int comparison = compare(target, node);
+            if (comparison < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left);
+                if (comparison == 0) return rank;
+                rank++;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a page of the leaderboard
+     *
+     * @param from  The rank of the first player, starting from 1
+     * @param count The maximum amount of players
+     * @return The statistics of the players, highest volume first
+     */
+    public static List<PlayerStats> getTop(int from, int count) {
+        List<PlayerStats> value = new ArrayList<>(Math.max(0, count));
+        for (int rank = Math.max(1, from); rank < from + count && rank <= size(root); rank++) {
+            value.add(select(rank));
+        }
+        return value;
+    }
+
+    /**
+     * Copies the statistics of every player, so that they can be written by another thread
+     *
+     * @return The copies, in no particular order
+     */
+    static List<PlayerStats> copy() {
+        List<PlayerStats> value = new ArrayList<>(stats.size());
+        for (PlayerStats player : stats.values()) value.add(player.copy());
+        return value;
+    }
+
+    /**
+     * Replaces the statistics of every player
+     *
+     * @param value The statistics, as returned by copy() or PlayerStats#read()
+     */
+    static void restore(List<PlayerStats> value) {
+        stats.clear();
+        root = null;
+        for (PlayerStats player : value) {
+            stats.put(player.player, player);
+            root = insert(root, player);
+        }
+    }
+
+    /// Gets the node at the specified rank, starting from 1
+    private static PlayerStats select(int rank) {
+        PlayerStats node = root;
+        while (node != null) {
+            int left = size(node.left);
+            if (rank <= left) {
+                node = node.left;
+            } else if (rank == left + 1) {
+                return node;
+            } else {
+                rank -= left + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    /// Orders by volume, highest first, then by UUID so that no two players are equal
+    private static int compare(PlayerStats a, PlayerStats b) {
+        if (a.volume != b.volume) return Long.compare(b.volume, a.volume);
+        return a.player.compareTo(b.player);
+    }
+
+    private static int size(@Nullable PlayerStats node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(PlayerStats node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static PlayerStats insert(@Nullable PlayerStats node, PlayerStats value) {
+        if (node == null) {
+            value.left = null;
+            value.right = null;
+            value.size = 1;
+            return value;
+        }
+
+        if (compare(value, node) < 0) {
+            node.left = insert(node.left, value);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, value);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    @Nullable
+    private static PlayerStats remove(@Nullable PlayerStats node, PlayerStats value) {
+        if (node == null) return null;
+
+        int comparison = compare(value, node);
+        if (comparison < 0) {
+            node.left = remove(node.left, value);
+        } else if (comparison > 0) {
+            node.right = remove(node.right, value);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            /// Rotate the node down until it has at most one child
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, value);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, value);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static PlayerStats rotateRight(PlayerStats node) {
+        PlayerStats left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static PlayerStats rotateLeft(PlayerStats node) {
+        PlayerStats right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    /**
+     * The running statistics of one player, which are also a node of the leaderboard treap
+     */
+    public static final class PlayerStats {
+        private final UUID player;
+        private final int priority;
+        private PlayerStats left = null;
+        private PlayerStats right = null;
+        private int size = 1;
+
+        private long volume = 0;
+        private long count = 0;
+        private long realizedGain = 0;
+        private long lastTrade = 0;
+        /// For every Material the player holds, the amount bought and what it cost, to compute the gain of sells
+        private final Map<Integer, long[]> positions = new HashMap<>();
+
+        private PlayerStats(UUID player, int priority) {
+            this.player = player;
+            this.priority = priority;
+        }
+
+        /**
+         * Adds a trade to these statistics. Sells realize the difference between what the items were
+         * sold for and what they cost on average. Items the player never bought cost nothing,
+         * so selling what they gathered is all gain
+         */
+        private void add(boolean isBuy, int material, long amount, long price, long time) {
+            volume += price;
+            count++;
+            lastTrade = Math.max(lastTrade, time);
+
+            long[] position = positions.get(material);
+            if (isBuy) {
+                if (position == null) positions.put(material, new long[]{amount, price});
+                else {
+                    position[0] += amount;
+                    position[1] += price;
+                }
+                return;
+            }
+
+            long cost = 0;
+            if (position != null && position[0] > 0) {
+                long held = Math.min(amount, position[0]);
+                cost = Math.round((double) position[1] * held / position[0]);
+                position[0] -= held;
+                position[1] -= cost;
+                if (position[0] == 0) positions.remove(material);
+            }
+            realizedGain += price - cost;
+        }
+
+        private PlayerStats copy() {
+            PlayerStats value = new PlayerStats(player, priority);
+            value.volume = volume;
+            value.count = count;
+            value.realizedGain = realizedGain;
+            value.lastTrade = lastTrade;
+            for (Map.Entry<Integer, long[]> position : positions.entrySet()) {
+                value.positions.put(position.getKey(), position.getValue().clone());
+            }
+            return value;
+        }
+
+        /**
+         * Writes these statistics. See read()
+         *
+         * @param out Where to write them
+         * @throws IOException If they can't be written
+         */
+        void write(DataOutput out) throws IOException {
+            out.writeLong(player.getMostSignificantBits());
+            out.writeLong(player.getLeastSignificantBits());
+            out.writeLong(volume);
+            out.writeLong(count);
+            out.writeLong(realizedGain);
+            out.writeLong(lastTrade);
+            out.writeInt(positions.size());
+            for (Map.Entry<Integer, long[]> position : positions.entrySet()) {
+                out.writeInt(position.getKey());
+                out.writeLong(position.getValue()[0]);
+                out.writeLong(position.getValue()[1]);
+            }
+        }
+
+        /**
+         * Reads statistics written by write()
+         *
+         * @param in        Where to read them from
+         * @param materials The table that converts the Material ordinals they were written with. See TradeJournal#getMaterialTable()
+         * @return The statistics
+         * @throws IOException If they can't be read
+         */
+        static PlayerStats read(DataInput in, int[] materials) throws IOException {
+            PlayerStats value = new PlayerStats(new UUID(in.readLong(), in.readLong()), random.nextInt());
+            value.volume = in.readLong();
+            value.count = in.readLong();
+            value.realizedGain = in.readLong();
+            value.lastTrade = in.readLong();
+
+            int positions = in.readInt();
+            for (int i = 0; i < positions; i++) {
+                int material = in.readInt();
+                long[] position = {in.readLong(), in.readLong()};
+                /// Materials that don't exist anymore can't be sold, so their positions are dropped
+                if (material >= 0 && material < materials.length && materials[material] != -1) {
+                    value.positions.put(materials[material], position);
+                }
+            }
+            return value;
+        }
+
+        public UUID getPlayer() {
+            return player;
+        }
+
+        /**
+         * Default getter for this class
+         *
+         * @return The money this player traded, buys and sells together
+         */
+        public Money getVolume() {
+            return Money.ofCents(volume);
+        }
+
+        /**
+         * Default getter for this class
+         *
+         * @return The amount of trades this player made
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Default getter for this class
+         *
+         * @return The money this player gained (or lost, if negative) with what they sold
+         */
+        public Money getRealizedGain() {
+            return Money.ofCents(realizedGain);
+        }
+
+        /**
+         * Default getter for this class
+         *
+         * @return When this player last traded, in milliseconds since the epoch
+         */
+        public long getLastTrade() {
+            return lastTrade;
+        }
+    }
+}
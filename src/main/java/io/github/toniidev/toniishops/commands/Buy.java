@@ -67,6 +67,11 @@ public class Buy implements CommandExecutor {
             GlobalShopItem item = GlobalShop.getItem(material);
             assert item != null;
 
+            if (amount > item.getAvailableAmount()) {
+                player.sendMessage(GlobalShopError.NOT_ENOUGH_ITEMS_SELLING.getMessage());
+                return true;
+            }
+
             player.openInventory(item.getConfirmGUI(new GlobalShopBuy(true, amount, player, item.getCumulativeBuyPrice(amount)), main));
         } else {
             /// IN THIS CASE IT HAS BEEN LAUNCHED FROM A PLAYER!!
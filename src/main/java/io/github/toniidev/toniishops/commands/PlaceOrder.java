@@ -0,0 +1,127 @@
+package io.github.toniidev.toniishops.commands;
+
+import io.github.toniidev.toniishops.classes.*;
+import io.github.toniidev.toniishops.factories.StringFactory;
+import io.github.toniidev.toniishops.strings.CommandError;
+import io.github.toniidev.toniishops.strings.ConsoleString;
+import io.github.toniidev.toniishops.strings.GlobalShopError;
+import io.github.toniidev.toniishops.strings.GlobalShopSuccess;
+import io.github.toniidev.toniishops.utils.CommandUtils;
+import io.github.toniidev.toniishops.utils.NumberUtils;
+import io.github.toniidev.toniishops.utils.StringUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
+
+import java.util.List;
+import java.util.Locale;
+
+public class PlaceOrder implements CommandExecutor {
+    @Override
+    public boolean onCommand(CommandSender commandSender, Command command, String s, String[] strings) {
+        if (!(commandSender instanceof Player player)) {
+            commandSender.sendMessage(ConsoleString.COMMAND_NOT_EXECUTABLE_FROM_CONSOLE.getMessage());
+            return true;
+        }
+
+        Permission permission = Bukkit.getPluginManager().getPermission("order-placing");
+        assert permission != null;
+        if (!commandSender.hasPermission(permission)) {
+            commandSender.sendMessage(CommandError.MISSING_PERMISSIONS.getMessage() +
+                    StringUtils.formatColorCodes('&', "&r&f" + permission.getName()));
+            return true;
+        }
+
+        if (CommandUtils.checkBaseArgs(strings, player, command)) return true;
+
+        if (strings.length == 0) {
+            player.sendMessage(new StringFactory(CommandError.INVALID_COMMAND_USAGE.getMessage())
+                    .append(command.getUsage()).setColor('f')
+                    .get());
+            return true;
+        }
+
+        switch (strings[0].toLowerCase(Locale.ROOT)) {
+            case "buy", "sell" -> {
+                /// The received command is: /order <buy|sell> <material> <amount> <price>
+                if (strings.length < 4) {
+                    player.sendMessage(new StringFactory(CommandError.INVALID_COMMAND_USAGE.getMessage())
+                            .append(command.getUsage()).setColor('f')
+                            .get());
+                    return true;
+                }
+
+                Material material = Material.getMaterial(strings[1].toUpperCase(Locale.ROOT));
+                if (material == null || !GlobalShop.canSell(material)) {
+                    player.sendMessage(GlobalShopError.ITEM_CANNOT_BE_SOLD.getMessage());
+                    return true;
+                }
+
+                if (!NumberUtils.isInteger(strings[2]) || Long.parseLong(strings[2]) <= 0) {
+                    player.sendMessage(GlobalShopError.INVALID_AMOUNT.getMessage());
+                    return true;
+                }
+                long amount = Long.parseLong(strings[2]);
+
+                Money price = Money.parse(strings[3]);
+                if (price == null || price.getCents() <= 0) {
+                    player.sendMessage(GlobalShopError.INVALID_PRICE.getMessage());
+                    return true;
+                }
+
+                GlobalShopItem item = GlobalShop.getItem(material);
+                assert item != null;
+
+                Order order = item.getOrderBook().place(player, strings[0].equalsIgnoreCase("buy"), amount, price);
+                if (order != null) {
+                    player.sendMessage(new StringFactory(GlobalShopSuccess.ORDER_PLACED.getMessage())
+                            .append("#" + order.getId()).setColor('f')
+                            .get());
+                }
+            }
+            case "cancel" -> {
+                /// The received command is: /order cancel <id>
+                if (strings.length < 2 || !NumberUtils.isInteger(strings[1])) {
+                    player.sendMessage(GlobalShopError.ORDER_NOT_FOUND.getMessage());
+                    return true;
+                }
+
+                Order order = OrderBook.getOrder(Long.parseLong(strings[1]));
+                if (order == null || !order.getPlayerUniqueID().equals(player.getUniqueId())) {
+                    player.sendMessage(GlobalShopError.ORDER_NOT_FOUND.getMessage());
+                    return true;
+                }
+
+                GlobalShopItem item = GlobalShop.getItem(order.getMaterial());
+                assert item != null;
+
+                item.getOrderBook().cancel(order);
+                player.sendMessage(GlobalShopSuccess.ORDER_CANCELLED.getMessage());
+            }
+            case "list" -> {
+                /// The received command is: /order list
+                List<Order> orders = OrderBook.getOrders(player.getUniqueId());
+                if (orders.isEmpty()) {
+                    player.sendMessage(StringUtils.formatColorCodes('&', "&7You don't have any open order."));
+                    return true;
+                }
+
+                for (Order order : orders) {
+                    player.sendMessage(StringUtils.formatColorCodes('&', "&f#" + order.getId() + " "
+                            + (order.isBuy() ? "&aBuy " : "&6Sell ") + "&f" + order.getRemaining() + "&7/" + order.getAmount() + "x "
+                            + "&f" + order.getMaterial().name().toLowerCase(Locale.ROOT).replace("_", " ")
+                            + " &7at &f" + order.getLimitPrice() + "$"));
+                }
+            }
+            default -> player.sendMessage(new StringFactory(CommandError.INVALID_COMMAND_USAGE.getMessage())
+                    .append(command.getUsage()).setColor('f')
+                    .get());
+        }
+
+        return true;
+    }
+}
@@ -49,8 +49,9 @@ public class Purse implements CommandExecutor {
         ServerPlayer serverPlayer = ServerPlayer.getPlayer(player);
         assert serverPlayer != null;
 
-        for(int i = 0; i < serverPlayer.getMoney(); i++){
-            itemStacks.add(new ItemStackFactory(Material.EMERALD, (serverPlayer.getMoney() - i >= 64 ? 64 : (int) serverPlayer.getMoney() - i))
+        long dollars = serverPlayer.getMoney().getCents() / 100;
+        for(int i = 0; i < dollars; i++){
+            itemStacks.add(new ItemStackFactory(Material.EMERALD, (dollars - i >= 64 ? 64 : (int) (dollars - i)))
                     .setName("1$")
                     .addLoreLine("Currency item. You can use this")
                     .addLoreLine("to buy anything you can imagine")
@@ -1,19 +1,46 @@
 package io.github.toniidev.toniishops.commands;
 
 import io.github.toniidev.toniishops.classes.GlobalShop;
+import io.github.toniidev.toniishops.classes.GlobalShopItem;
+import io.github.toniidev.toniishops.classes.Money;
+import io.github.toniidev.toniishops.classes.ServerPlayer;
+import io.github.toniidev.toniishops.classes.TradeExporter;
+import io.github.toniidev.toniishops.classes.TradeIndex;
+import io.github.toniidev.toniishops.classes.TradeRecord;
+import io.github.toniidev.toniishops.classes.TradeRecorder;
+import io.github.toniidev.toniishops.classes.TradeStats;
+import io.github.toniidev.toniishops.factories.StringFactory;
 import io.github.toniidev.toniishops.strings.CommandError;
+import io.github.toniidev.toniishops.strings.CommandString;
 import io.github.toniidev.toniishops.strings.ConsoleString;
+import io.github.toniidev.toniishops.strings.GlobalShopError;
+import io.github.toniidev.toniishops.strings.GlobalShopSuccess;
 import io.github.toniidev.toniishops.utils.CommandUtils;
+import io.github.toniidev.toniishops.utils.NumberUtils;
 import io.github.toniidev.toniishops.utils.StringUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.Permission;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.UUID;
 
 public class Shop implements CommandExecutor {
+    private static final int TOP_TRADERS_PAGE_SIZE = 10;
+
     private final Plugin main;
 
     public Shop(Plugin plugin){
@@ -37,8 +64,250 @@ public class Shop implements CommandExecutor {
 
         if(CommandUtils.checkBaseArgs(strings, player, command)) return true;
 
+        if (strings.length > 0) {
+            switch (strings[0].toLowerCase(Locale.ROOT)) {
+                case "alert" -> {
+                    return this.alert(player, command, strings);
+                }
+                case "history" -> {
+                    return this.history(player, command, strings);
+                }
+                case "export" -> {
+                    return this.export(player, command, strings);
+                }
+                case "toptraders" -> {
+                    return this.topTraders(player, strings);
+                }
+            }
+        }
+
         player.openInventory(GlobalShop.getHomeGUI(main));
 
         return true;
     }
+
+    /**
+     * Subscribes the player to a price alert.
+     * The received command is: /shop alert <material> <above|below> <price>
+     */
+    private boolean alert(Player player, Command command, String[] strings) {
+        if (strings.length < 4 || !(strings[2].equalsIgnoreCase("above") || strings[2].equalsIgnoreCase("below"))) {
+            player.sendMessage(CommandString.COMMAND_USAGE.getFinalMessage(Bukkit.getPluginCommand(command.getName())));
+            return true;
+        }
+
+        Material material = Material.getMaterial(strings[1].toUpperCase(Locale.ROOT));
+        GlobalShopItem item = material == null ? null : GlobalShop.getItem(material);
+        if (item == null) {
+            player.sendMessage(GlobalShopError.ITEM_CANNOT_BE_SOLD.getMessage());
+            return true;
+        }
+
+        Money threshold = Money.parse(strings[3]);
+        if (threshold == null || threshold.getCents() <= 0) {
+            player.sendMessage(GlobalShopError.INVALID_PRICE.getMessage());
+            return true;
+        }
+
+        boolean isAbove = strings[2].equalsIgnoreCase("above");
+        Money price = item.getSellPrice();
+        if (isAbove ? price.compareTo(threshold) >= 0 : price.compareTo(threshold) <= 0) {
+            player.sendMessage(new StringFactory(GlobalShopError.ALERT_ALREADY_CROSSED.getMessage())
+                    .append(price + "$").setColor('f')
+                    .get());
+            return true;
+        }
+
+        if (!item.getPriceAlerts().add(player.getUniqueId(), isAbove, threshold)) {
+            player.sendMessage(GlobalShopError.TOO_MANY_ALERTS.getMessage());
+            return true;
+        }
+
+        player.sendMessage(GlobalShopSuccess.ALERT_SET.getMessage());
+        return true;
+    }
+
+    /**
+     * Shows a page of the trades of a player, for staff investigating the economy.
+     * The received command is: /shop history <player> [since] [page], where since is either a duration
+     * like "12h" or, in the next page hint, "@" followed by the time the first page started from
+     */
+    private boolean history(Player player, Command command, String[] strings) {
+        Permission permission = Bukkit.getPluginManager().getPermission("trade-history");
+        assert permission != null;
+        if (!player.hasPermission(permission)) {
+            player.sendMessage(CommandError.MISSING_PERMISSIONS.getMessage() +
+                    StringUtils.formatColorCodes('&', "&r&f" + permission.getName()));
+            return true;
+        }
+
+        if (strings.length < 2) {
+            player.sendMessage(CommandString.COMMAND_USAGE.getFinalMessage(Bukkit.getPluginCommand(command.getName())));
+            return true;
+        }
+
+        TradeIndex index = TradeRecorder.getIndex();
+        if (index == null) {
+            player.sendMessage(GlobalShopError.HISTORY_UNAVAILABLE.getMessage());
+            return true;
+        }
+
+        /// Only players the server knows are searched, so no profile is looked up online on the main thread
+        OfflinePlayer target = ServerPlayer.findOfflinePlayer(strings[1]);
+        if (target == null) {
+            player.sendMessage(GlobalShopError.PLAYER_NOT_FOUND.getMessage());
+            return true;
+        }
+
+        long since = 0;
+        if (strings.length >= 3) {
+            /// The next page hint passes the time the first page started from, so its pages don't shift
+            if (strings[2].startsWith("@") && NumberUtils.isLong(strings[2].substring(1))) {
+                since = Long.parseLong(strings[2].substring(1));
+            } else {
+                long duration = StringUtils.parseDuration(strings[2]);
+                if (duration == -1) {
+                    player.sendMessage(GlobalShopError.INVALID_DURATION.getMessage());
+                    return true;
+                }
+                since = System.currentTimeMillis() - duration;
+            }
+        }
+
+        int page = 1;
+        if (strings.length >= 4) {
+            if (!NumberUtils.isInteger(strings[3]) || Integer.parseInt(strings[3]) < 1) {
+                player.sendMessage(GlobalShopError.INVALID_AMOUNT.getMessage());
+                return true;
+            }
+            page = Integer.parseInt(strings[3]);
+        }
+
+        int count = index.count(target.getUniqueId(), since);
+        int pages = Math.max(1, (count + TradeIndex.PAGE_SIZE - 1) / TradeIndex.PAGE_SIZE);
+
+        player.sendMessage(StringUtils.formatColorCodes('&', "&eTrades of &f" + target.getName()
+                + "&e: &f" + count + " &7(page " + Math.min(page, pages) + "/" + pages + ")"));
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (TradeRecord record : index.getPage(target.getUniqueId(), since, page - 1)) {
+            String material = record.getMaterial() == null ? "unknown item" : record.getMaterial().name().toLowerCase(Locale.ROOT).replace("_", " ");
+            player.sendMessage(StringUtils.formatColorCodes('&', "&8" + format.format(new Date(record.getTime())) + " "
+                    + (record.getKind().isBuy() ? "&a" : "&6") + record.getKind().name().toLowerCase(Locale.ROOT).replace("_", " ")
+                    + " &f" + record.getAmount() + "x " + material + " &7for &f" + record.getPrice() + "$"));
+        }
+
+        if (page < pages) {
+            player.sendMessage(StringUtils.formatColorCodes('&', "&7Next page: &f/shop history " + strings[1] + " "
+                    + "@" + since + " " + (page + 1)));
+        }
+        return true;
+    }
+
+    /**
+     * Shows a page of the players that traded the most money, and the statistics of the player.
+     * The received command is: /shop toptraders [page]
+     */
+    private boolean topTraders(Player player, String[] strings) {
+        int page = 1;
+        if (strings.length >= 2) {
+            if (!NumberUtils.isInteger(strings[1]) || Integer.parseInt(strings[1]) < 1) {
+                player.sendMessage(GlobalShopError.INVALID_AMOUNT.getMessage());
+                return true;
+            }
+            page = Integer.parseInt(strings[1]);
+        }
+
+        int pages = Math.max(1, (TradeStats.size() + TOP_TRADERS_PAGE_SIZE - 1) / TOP_TRADERS_PAGE_SIZE);
+        page = Math.min(page, pages);
+        int from = (page - 1) * TOP_TRADERS_PAGE_SIZE + 1;
+
+        player.sendMessage(StringUtils.formatColorCodes('&', "&eTop traders &7(page " + page + "/" + pages + ")"));
+
+        int rank = from;
+        for (TradeStats.PlayerStats stats : TradeStats.getTop(from, TOP_TRADERS_PAGE_SIZE)) {
+            String name = Bukkit.getOfflinePlayer(stats.getPlayer()).getName();
+            player.sendMessage(StringUtils.formatColorCodes('&', "&7#" + rank++ + " &f" + (name == null ? "unknown player" : name)
+                    + " &7traded &f" + stats.getVolume() + "$ &7in &f" + stats.getCount() + " &7trades"));
+        }
+
+        TradeStats.PlayerStats own = TradeStats.getStats(player.getUniqueId());
+        if (own != null) {
+            Money gain = own.getRealizedGain();
+            player.sendMessage(StringUtils.formatColorCodes('&', "&eYou: &7#" + TradeStats.getRank(player.getUniqueId())
+                    + " &7traded &f" + own.getVolume() + "$ &7in &f" + own.getCount() + " &7trades, realized gain "
+                    + (gain.isNegative() ? "&c" : "&a") + gain + "$"));
+        }
+        return true;
+    }
+
+    /**
+     * Joins the daily trade exports of a range of days into one file, off the main thread.
+     * The received command is: /shop export <from> <to>
+     */
+    private boolean export(Player player, Command command, String[] strings) {
+        Permission permission = Bukkit.getPluginManager().getPermission("trade-export");
+        assert permission != null;
+        if (!player.hasPermission(permission)) {
+            player.sendMessage(CommandError.MISSING_PERMISSIONS.getMessage() +
+                    StringUtils.formatColorCodes('&', "&r&f" + permission.getName()));
+            return true;
+        }
+
+        if (strings.length < 3) {
+            player.sendMessage(CommandString.COMMAND_USAGE.getFinalMessage(Bukkit.getPluginCommand(command.getName())));
+            return true;
+        }
+
+        TradeExporter exporter = TradeRecorder.getExporter();
+        if (exporter == null) {
+            player.sendMessage(GlobalShopError.EXPORT_UNAVAILABLE.getMessage());
+            return true;
+        }
+
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(strings[1]);
+            to = LocalDate.parse(strings[2]);
+        } catch (DateTimeParseException e) {
+            player.sendMessage(GlobalShopError.INVALID_DATE.getMessage());
+            return true;
+        }
+        if (from.isAfter(to)) {
+            player.sendMessage(GlobalShopError.INVALID_DATE.getMessage());
+            return true;
+        }
+
+        player.sendMessage(GlobalShopSuccess.EXPORT_STARTED.getMessage());
+        UUID uuid = player.getUniqueId();
+        File directory = exporter.getDirectory();
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                String message;
+                try {
+                    File file = TradeExporter.export(directory, from, to);
+                    message = new StringFactory(GlobalShopSuccess.EXPORT_COMPLETED.getMessage())
+                            .append(file.getName()).setColor('f')
+                            .get();
+                } catch (IOException e) {
+                    Bukkit.getLogger().warning("Could not export the trades from " + from + " to " + to + ": " + e.getMessage());
+                    message = GlobalShopError.EXPORT_UNAVAILABLE.getMessage();
+                }
+
+                /// Players can only be messaged from the main thread
+                String result = message;
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        Player target = Bukkit.getPlayer(uuid);
+                        if (target != null) target.sendMessage(result);
+                    }
+                }.runTask(main);
+            }
+        }.runTaskAsynchronously(main);
+        return true;
+    }
 }
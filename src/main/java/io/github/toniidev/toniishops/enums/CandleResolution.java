@@ -0,0 +1,39 @@
+package io.github.toniidev.toniishops.enums;
+
+/**
+ * The resolutions OHLC candles are aggregated at, and how many candles of each are kept
+ */
+public enum CandleResolution {
+    /// One day of 1-minute candles
+    MINUTE(60_000L, 1440),
+    /// One week of 1-hour candles
+    HOUR(3_600_000L, 168),
+    /// One year of 1-day candles
+    DAY(86_400_000L, 365);
+
+    private final long millis;
+    private final int capacity;
+
+    CandleResolution(long millis, int capacity) {
+        this.millis = millis;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How long a candle of this resolution lasts, in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return How many candles of this resolution are kept for each Material
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
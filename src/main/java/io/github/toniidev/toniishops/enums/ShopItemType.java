@@ -1,6 +1,11 @@
 package io.github.toniidev.toniishops.enums;
 
+import io.github.toniidev.toniishops.classes.ConstantProductPricingCurve;
+import io.github.toniidev.toniishops.classes.ExponentialPricingCurve;
+import io.github.toniidev.toniishops.classes.HyperbolicPricingCurve;
+import io.github.toniidev.toniishops.classes.LogisticPricingCurve;
 import io.github.toniidev.toniishops.factories.ItemStackFactory;
+import io.github.toniidev.toniishops.interfaces.PricingCurve;
 import io.github.toniidev.toniishops.utils.StringUtils;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
@@ -9,31 +14,45 @@ public enum ShopItemType {
     BLOCK(new ItemStackFactory(Material.GRASS_BLOCK)
             .setName(StringUtils.formatColorCodes('&', "&e&lBuilding blocks"))
             .addLoreLine("Most common building blocks")
-            .get()),
+            .get(), new HyperbolicPricingCurve(100, 1.25)),
     ITEM(new ItemStackFactory(Material.FEATHER)
             .setName(StringUtils.formatColorCodes('&', "&b&lItems"))
             .addLoreLine("Most common items")
-            .get()),
+            .get(), new HyperbolicPricingCurve(100, 1.25)),
     ORE(new ItemStackFactory(Material.DIAMOND)
             .setName(StringUtils.formatColorCodes('&', "&9&lOres"))
             .addLoreLine("All the main ores")
-            .get()),
+            .get(), new ConstantProductPricingCurve(273.2, 1.25)),
     FOOD(new ItemStackFactory(Material.COOKED_MUTTON)
             .setName(StringUtils.formatColorCodes('&', "&e&lFood"))
             .addLoreLine("All the foods")
-            .get()),
+            .get(), new ExponentialPricingCurve(182.05, 1.25)),
     DECORATIVE(new ItemStackFactory(Material.TORCHFLOWER)
             .setName(StringUtils.formatColorCodes('&', "&6&lDecoration"))
             .addLoreLine("Main decorational blocks")
-            .get());
+            .get(), new LogisticPricingCurve(124.27, 1.25));
+
+    /// Every curve is calibrated so that it gives a third of the base price when there are 200 items on the market,
+    /// like the original hyperbolic curve does, so that a freshly initialized shop keeps the same prices
 
     private final ItemStack icon;
+    private final PricingCurve pricingCurve;
 
-    ShopItemType(ItemStack stack){
+    ShopItemType(ItemStack stack, PricingCurve curve){
         this.icon = stack;
+        this.pricingCurve = curve;
     }
 
     public ItemStack getIcon(){
         return this.icon;
     }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The PricingCurve that every GlobalShopItem of this type uses unless a custom one is set
+     */
+    public PricingCurve getPricingCurve(){
+        return this.pricingCurve;
+    }
 }
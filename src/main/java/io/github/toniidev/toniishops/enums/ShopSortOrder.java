@@ -0,0 +1,41 @@
+package io.github.toniidev.toniishops.enums;
+
+/**
+ * The orders the items of a Global Shop category can be shown in. See CategoryView
+ */
+public enum ShopSortOrder {
+    /// Alphabetical, by Material name
+    NAME("Name"),
+    /// Cheapest to buy first
+    BUY_PRICE("Buy price"),
+    /// Best paid when sold first
+    SELL_PRICE("Sell price"),
+    /// Most traded lately first
+    VOLUME("Recent volume");
+
+    private static final ShopSortOrder[] ORDERS = ShopSortOrder.values();
+
+    private final String name;
+
+    ShopSortOrder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Default getter for this class
+     *
+     * @return The name of this order, as it is shown to players
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the order the sort button of a category switches to
+     *
+     * @return The order after this one, going back to the first one after the last one
+     */
+    public ShopSortOrder next() {
+        return ORDERS[(this.ordinal() + 1) % ORDERS.length];
+    }
+}
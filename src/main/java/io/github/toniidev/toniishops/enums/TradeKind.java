@@ -0,0 +1,84 @@
+package io.github.toniidev.toniishops.enums;
+
+/**
+ * The kinds of trades that are recorded by TradeRecorder.
+ * Their ordinals are written in the trade journal, so new kinds must only be added at the end
+ */
+public enum TradeKind {
+    /// A player bought items from the Global Shop market
+    GLOBAL_BUY,
+    /// A player sold items to the Global Shop market
+    GLOBAL_SELL,
+    /// A buy order was (partially) filled by the market
+    ORDER_BUY,
+    /// A sell order was (partially) filled by the market
+    ORDER_SELL,
+    /// A player bought an item from the shop of another player. The same trade is also recorded as PLAYER_SHOP_SELL
+    PLAYER_SHOP_BUY,
+    /// A buy order was (partially) filled by a sell order. The same trade is also recorded as MATCH_SELL
+    MATCH_BUY,
+    /// A sell order was (partially) filled by a buy order. The same trade is also recorded as MATCH_BUY
+    MATCH_SELL,
+    /// Not a trade: the amount on the market of a Material, written every time the market tick
+    /// restocks or drains it, since that changes it without any trade
+    STOCK,
+    /// The owner of a player shop sold an item to another player. The same trade is also recorded as PLAYER_SHOP_BUY
+    PLAYER_SHOP_SELL,
+    /// Not a trade: a player placed a buy order, that took its money. The amount is the amount of the order,
+    /// the price the limit price of one item, and the amount on the market the id of the order
+    ORDER_PLACED_BUY,
+    /// Not a trade: a player placed a sell order, that took its items. Written like ORDER_PLACED_BUY
+    ORDER_PLACED_SELL,
+    /// Not a trade: an order was cancelled, giving back what it held. The amount is what was left of the order,
+    /// the price the limit price of one item, and the amount on the market the id of the order
+    ORDER_CANCELLED;
+
+    private static final TradeKind[] VALUES = values();
+
+    /**
+     * Gets a TradeKind from its ordinal, without allocating the array values() returns
+     *
+     * @param ordinal The ordinal of the TradeKind
+     * @return The TradeKind with that ordinal, or null if there is none
+     */
+    public static TradeKind fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+
+    /**
+     * Tells whether in this kind of trade the player got items and paid money
+     *
+     * @return true for buys, false for sells
+     */
+    public boolean isBuy() {
+        return this == GLOBAL_BUY || this == ORDER_BUY || this == PLAYER_SHOP_BUY || this == MATCH_BUY;
+    }
+
+    /**
+     * Tells whether this kind of record is a trade, that moved items and money between a player and the market,
+     * another player or an order
+     *
+     * @return false for STOCK and for the placing and cancelling of orders
+     */
+    public boolean isTrade() {
+        return this != STOCK && !this.isOrderChange();
+    }
+
+    /**
+     * Tells whether this kind of record is an order being placed or cancelled. See OrderBook
+     *
+     * @return true for ORDER_PLACED_BUY, ORDER_PLACED_SELL and ORDER_CANCELLED
+     */
+    public boolean isOrderChange() {
+        return this == ORDER_PLACED_BUY || this == ORDER_PLACED_SELL || this == ORDER_CANCELLED;
+    }
+
+    /**
+     * Tells whether this kind of trade happened in the shop of a player, at its fixed price, without changing the market
+     *
+     * @return true for PLAYER_SHOP_BUY and PLAYER_SHOP_SELL
+     */
+    public boolean isPlayerShop() {
+        return this == PLAYER_SHOP_BUY || this == PLAYER_SHOP_SELL;
+    }
+}
@@ -1,19 +1,26 @@
 package io.github.toniidev.toniishops.extendable;
 
+import io.github.toniidev.toniishops.classes.Money;
 import io.github.toniidev.toniishops.enums.GlobalShopActionType;
 import org.bukkit.entity.Player;
 
-public class GlobalShopAction {
+/**
+ * An action a player is choosing on the Global Shop. Instances are immutable: GUIs that
+ * change the selected amount create a new action with withAmount(), so that no lambda
+ * can change an action another one is still showing
+ */
+public abstract class GlobalShopAction {
     private final GlobalShopActionType type;
-    private long amount;
+    private final long amount;
     private final Player player;
-    private double price;
+    /// The price, in cents. See Money
+    private final long price;
 
-    public GlobalShopAction(GlobalShopActionType type, long amount, Player player, double price) {
+    public GlobalShopAction(GlobalShopActionType type, long amount, Player player, Money price) {
         this.type = type;
         this.amount = amount;
         this.player = player;
-        this.price = price;
+        this.price = price.getCents();
     }
 
     public GlobalShopActionType getType() {
@@ -28,17 +35,25 @@ public class GlobalShopAction {
         return player;
     }
 
-    public double getPrice() {
-        return price;
+    public Money getPrice() {
+        return Money.ofCents(price);
     }
 
-    public GlobalShopAction setAmount(long amount) {
-        this.amount = amount;
-        return this;
+    /**
+     * Tells whether this action is about buying items from the Global Shop or not
+     *
+     * @return true if this is a buy action, false if it is a sell action
+     */
+    public boolean isBuy() {
+        return type.equals(GlobalShopActionType.BUY_ONE) || type.equals(GlobalShopActionType.BUY_MULTIPLE);
     }
 
-    public GlobalShopAction setPrice(double price) {
-        this.price = price;
-        return this;
-    }
+    /**
+     * Creates a copy of this action with another amount of items and its price
+     *
+     * @param amount The amount of items of the new action
+     * @param price  The price of the new action
+     * @return A new GlobalShopAction instance of the same type and of the same player
+     */
+    public abstract GlobalShopAction withAmount(long amount, Money price);
 }
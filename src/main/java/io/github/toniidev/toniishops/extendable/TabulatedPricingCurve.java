@@ -0,0 +1,82 @@
+package io.github.toniidev.toniishops.extendable;
+
+import io.github.toniidev.toniishops.interfaces.PricingCurve;
+
+/**
+ * Base class of every PricingCurve. Subclasses only need to tell how to compute the factor
+ * for a certain amount; this class stores the prefix sums table and falls back to
+ * the formulas when an amount is outside the precomputed range.
+ */
+public abstract class TabulatedPricingCurve implements PricingCurve {
+    private final double margin;
+
+    /// prefix[n] = getFactor(0) + ... + getFactor(n - 1). It is null until precompute() gets called
+    private double[] prefix;
+
+    /**
+     * Creates the base of a PricingCurve
+     *
+     * @param buyMargin The value the sell price is multiplied by to get the buy price
+     */
+    public TabulatedPricingCurve(double buyMargin) {
+        this.margin = buyMargin;
+    }
+
+    /**
+     * Computes the factor of the curve, without reading the table
+     *
+     * @param amountOnTheMarket The amount of items that are on the market
+     * @return The sell price of one item divided by the base price
+     */
+    protected abstract double computeFactor(long amountOnTheMarket);
+
+    /**
+     * Computes the sum of the factors without reading the table. Curves that have a closed form
+     * for it should override this, the default implementation sums every factor
+     *
+     * @param fromAmount The first amount on the market to sum the factor of
+     * @param count      How many consecutive amounts have to be summed
+     * @return The sum of the factors of every amount in [fromAmount, fromAmount + count)
+     */
+    protected double computeFactorSum(long fromAmount, long count) {
+        double value = 0.0;
+        for (long n = fromAmount; n < fromAmount + count; n++) {
+            value += computeFactor(n);
+        }
+        return value;
+    }
+
+    @Override
+    public double getFactor(long amountOnTheMarket) {
+        if (prefix != null && amountOnTheMarket >= 0 && amountOnTheMarket < prefix.length - 1) {
+            int n = (int) amountOnTheMarket;
+            return prefix[n + 1] - prefix[n];
+        }
+        return computeFactor(amountOnTheMarket);
+    }
+
+    @Override
+    public double getFactorSum(long fromAmount, long count) {
+        if (count <= 0) return 0.0;
+        if (prefix != null && fromAmount >= 0 && fromAmount + count < prefix.length) {
+            return prefix[(int) (fromAmount + count)] - prefix[(int) fromAmount];
+        }
+        return computeFactorSum(fromAmount, count);
+    }
+
+    @Override
+    public double getMargin() {
+        return this.margin;
+    }
+
+    @Override
+    public PricingCurve precompute(int maxAmount) {
+        double[] table = new double[maxAmount + 2];
+        for (int n = 0; n <= maxAmount; n++) {
+            table[n + 1] = table[n] + computeFactor(n);
+        }
+
+        this.prefix = table;
+        return this;
+    }
+}
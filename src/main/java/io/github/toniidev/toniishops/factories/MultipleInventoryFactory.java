@@ -1,6 +1,7 @@
 package io.github.toniidev.toniishops.factories;
 
 import io.github.toniidev.toniishops.interfaces.InventoryInterface;
+import io.github.toniidev.toniishops.interfaces.PageItemProvider;
 import io.github.toniidev.toniishops.utils.StringUtils;
 import org.bukkit.Material;
 import org.bukkit.entity.HumanEntity;
@@ -11,28 +12,63 @@ import org.bukkit.plugin.Plugin;
 import java.util.*;
 
 public class MultipleInventoryFactory {
-    private final List<Inventory> pages;
+    /// Pages are only built the first time they are opened, so only the items of the visited pages are created
+    private final Inventory[] pages;
+    private final int itemCount;
+    private final PageItemProvider provider;
+    private final InventoryFactory startFactory;
+    /// Items every page shows in the same slot, like buttons whose actions are set on the start factory
+    private final Map<Integer, ItemStack> fixedItems = new HashMap<>();
 
     private final int[] airSlots = {2, 3, 4, 5, 6, 7, 11, 12, 13, 14, 15, 16, 20, 21, 22, 23, 24, 25, 29,
             30, 31, 32, 33, 34, 38, 39, 40, 41, 42, 43, 47, 48, 49, 50, 51, 52};
 
     public MultipleInventoryFactory(List<ItemStack> items, Plugin plugin, InventoryFactory startFactory) {
-        this.pages = new ArrayList<>();
+        this(items.size(), items::get, plugin, startFactory);
+    }
+
+    /**
+     * Creates a MultipleInventoryFactory whose items are created only when the page they are in is opened
+     *
+     * @param itemCount    The total amount of items of all the pages
+     * @param provider     Creates the item at an index, from 0 to itemCount - 1
+     * @param plugin       The main plugin instance
+     * @param startFactory The factory every page copies its title, actions and close behaviour from
+     */
+    public MultipleInventoryFactory(int itemCount, PageItemProvider provider, Plugin plugin, InventoryFactory startFactory) {
+        this.itemCount = itemCount;
+        this.provider = provider;
+        this.startFactory = startFactory;
+        this.pages = new Inventory[(int) Math.ceil((double) itemCount / airSlots.length)];
+    }
 
-        int totalPages = (int) Math.ceil((double) items.size() / airSlots.length);
+    /**
+     * Sets an item every page shows in the specified slot. Its action has to be set on the start factory,
+     * which every page copies its actions from. It must be set before the first page is opened
+     *
+     * @param slot The slot, out of the slots of the items of the pages
+     * @param item The item
+     * @return This MultipleInventoryFactory
+     */
+    public MultipleInventoryFactory setItem(int slot, ItemStack item) {
+        fixedItems.put(slot, item);
+        return this;
+    }
 
-        // Create pages
-        for (int pageNumber = 0; pageNumber < totalPages; pageNumber++) {
-            int startIndex = pageNumber * airSlots.length;
-            int endIndex = Math.min(startIndex + airSlots.length, items.size());
-            List<ItemStack> currentItems = items.subList(startIndex, endIndex);
+    private Inventory getPage(int pageNumber) {
+        if (pages[pageNumber] != null) return pages[pageNumber];
 
-            // Create page inventory with items
-            InventoryFactory pageInventory = createPageTemplate(startFactory)
-                    .addItem(currentItems);
+        int startIndex = pageNumber * airSlots.length;
+        int endIndex = Math.min(startIndex + airSlots.length, itemCount);
+        List<ItemStack> currentItems = new ArrayList<>(endIndex - startIndex);
+        for (int i = startIndex; i < endIndex; i++) currentItems.add(provider.get(i));
 
-            pages.add(finalizePage(pageNumber, totalPages, pageInventory));
-        }
+        // Create page inventory with items
+        InventoryFactory pageInventory = createPageTemplate(startFactory)
+                .addItem(currentItems);
+
+        pages[pageNumber] = finalizePage(pageNumber, pages.length, pageInventory);
+        return pages[pageNumber];
     }
 
     private InventoryFactory createPageTemplate(InventoryFactory startFactory) {
@@ -57,6 +93,7 @@ public class MultipleInventoryFactory {
                 .setRedirects(redirects);
 
         setAirItems(factory); // Set air items for the inventory template
+        fixedItems.forEach(factory::setItem);
 
         return factory;
     }
@@ -108,10 +145,10 @@ public class MultipleInventoryFactory {
     }
 
     private void openPage(int pageNumber, HumanEntity player) {
-        player.openInventory(pages.get(pageNumber));
+        player.openInventory(getPage(pageNumber));
     }
 
     public Inventory get() {
-        return pages.isEmpty() ? null : pages.getFirst();
+        return pages.length == 0 ? null : getPage(0);
     }
 }
@@ -0,0 +1,7 @@
+package io.github.toniidev.toniishops.interfaces;
+
+import org.bukkit.inventory.ItemStack;
+
+public interface PageItemProvider {
+    ItemStack get(int index);
+}
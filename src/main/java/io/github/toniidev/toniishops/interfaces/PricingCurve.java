@@ -0,0 +1,57 @@
+package io.github.toniidev.toniishops.interfaces;
+
+/**
+ * A curve that tells how the price of a GlobalShopItem changes based on how many items
+ * are on the market. Every value is a factor that has to be multiplied by the base price
+ * of the item, so a single curve can be shared by every item of the same ShopItemType.
+ */
+public interface PricingCurve {
+    /**
+     * Gets the factor to multiply the base price by to get the sell price of one item
+     *
+     * @param amountOnTheMarket The amount of items that are on the market
+     * @return The sell price of one item divided by the base price
+     */
+    double getFactor(long amountOnTheMarket);
+
+    /**
+     * Gets the sum of getFactor(n) for every n in [fromAmount, fromAmount + count)
+     *
+     * @param fromAmount The first amount on the market to sum the factor of
+     * @param count      How many consecutive amounts have to be summed
+     * @return The sum of the factors, that multiplied by the base price gives the price of count items
+     */
+    double getFactorSum(long fromAmount, long count);
+
+    /**
+     * Gets the sum of the factors of the items of a buy. Every bought item decreases the amount on the market, so
+     * they go from the available amount downwards. If more items are asked for than are available, like when the
+     * price of a whole stack is shown for an item that has less, they are priced as if the market had just enough
+     * of them, instead of at an amount on the market below zero
+     *
+     * @param available The amount of items that can be bought
+     * @param amount    The amount of items to buy
+     * @return The sum of the factors, that multiplied by the base price gives the price of the items without the margin
+     */
+    default double getBuyFactorSum(long available, long amount) {
+        if (amount <= 0) return 0.0;
+        return this.getFactorSum(Math.max(0, available - amount + 1), amount);
+    }
+
+    /**
+     * Gets the margin the Global Shop applies on top of the sell price when a player buys an item
+     * that is rarely traded. Every GlobalShopItem narrows it with its MarketSpread as it gets traded
+     *
+     * @return The value the sell price of an illiquid item is multiplied by to get the buy price
+     */
+    double getMargin();
+
+    /**
+     * Precomputes the factors and their prefix sums for every amount in [0, maxAmount], so that
+     * both getFactor and getFactorSum become array lookups inside that range
+     *
+     * @param maxAmount The highest amount on the market that has to be precomputed
+     * @return This PricingCurve instance
+     */
+    PricingCurve precompute(int maxAmount);
+}
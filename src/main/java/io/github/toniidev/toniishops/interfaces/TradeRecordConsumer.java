@@ -0,0 +1,14 @@
+package io.github.toniidev.toniishops.interfaces;
+
+/**
+ * Receives the records of a trade journal segment while it is scanned, as primitives,
+ * so that scanning millions of records allocates nothing for each of them
+ */
+public interface TradeRecordConsumer {
+    /**
+     * @param position The position of the record in its segment
+     * @param material The ordinal of the Material in this server, or -1 if the Material doesn't exist anymore
+     */
+    void accept(int position, long time, int kind, int material, long playerMost, long playerLeast,
+                long amount, long price, long stockAfter);
+}
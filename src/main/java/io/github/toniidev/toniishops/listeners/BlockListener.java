@@ -1,5 +1,6 @@
 package io.github.toniidev.toniishops.listeners;
 
+import io.github.toniidev.toniishops.classes.Money;
 import io.github.toniidev.toniishops.classes.ServerPlayer;
 import io.github.toniidev.toniishops.classes.Shop;
 import io.github.toniidev.toniishops.factories.BlockFactory;
@@ -33,7 +34,7 @@ public class BlockListener implements Listener {
         new BlockFactory(e.getBlockPlaced().getLocation())
                 .setTitle(StringUtils.formatColorCodes('&', "&f&l" + e.getPlayer().getDisplayName() + "&r&b shop"))
                 .setSubtitle(StringUtils.formatColorCodes('&', "&e&lCLICK!"));
-        Shop.shops.add(new Shop(e.getBlockPlaced().getLocation(), 200, e.getPlayer(), true));
+        Shop.shops.add(new Shop(e.getBlockPlaced().getLocation(), Money.of(200), e.getPlayer(), true));
         ServerPlayer.refreshScoreboard(e.getPlayer());
     }
 
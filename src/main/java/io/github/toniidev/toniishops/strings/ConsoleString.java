@@ -10,7 +10,15 @@ public enum ConsoleString {
     /**
      * When I use this, the code is usually like this: getLogger#warning(%this_enum% + stack.getType)
      */
-    MISSING_ITEM_META("I tried to edit an ItemStack with no ItemMeta. Specified ItemStack: ");
+    MISSING_ITEM_META("I tried to edit an ItemStack with no ItemMeta. Specified ItemStack: "),
+    /**
+     * When I use this, the code is usually like this: getLogger#warning(%this_enum% + GlobalShopItem.getMaterial)
+     */
+    TRADING_HALTED("The price moved too fast, trading has been halted for a while. Specified item: "),
+    /**
+     * When I use this, the code is usually like this: getLogger#warning(%this_enum% + details)
+     */
+    TRADE_ANOMALY("A player is selling an unusual amount of items, check for dupes: ");
 
     private final String message;
 
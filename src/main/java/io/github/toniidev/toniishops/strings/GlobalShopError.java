@@ -37,6 +37,61 @@ public enum GlobalShopError {
             .append("[Server]").setColor('a')
             .append("Global shop:").setColor('e')
             .append("You don't have that much items of this type in your inventory.").setColor('7')
+            .get()),
+    QUOTE_EXPIRED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("This offer is no longer valid. Please select the amount again.").setColor('7')
+            .get()),
+    INVALID_PRICE(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The price you specified is invalid.").setColor('7')
+            .get()),
+    ORDER_NOT_FOUND(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("You don't have any open order with that id.").setColor('7')
+            .get()),
+    TRADING_HALTED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The price of this item moved too fast, so trading is halted for a few minutes.").setColor('7')
+            .get()),
+    TOO_MANY_ALERTS(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("You can't have more price alerts. Wait for some of them to fire.").setColor('7')
+            .get()),
+    ALERT_ALREADY_CROSSED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The price has already crossed that threshold. Current price:").setColor('7')
+            .get()),
+    PLAYER_NOT_FOUND(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The player you specified never played on this server.").setColor('7')
+            .get()),
+    INVALID_DURATION(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The time you specified is invalid. Use something like 30m, 12h or 7d.").setColor('7')
+            .get()),
+    HISTORY_UNAVAILABLE(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Trade history is not available, the trade journal could not be opened.").setColor('7')
+            .get()),
+    INVALID_DATE(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The dates you specified are invalid. Use something like 2024-05-31, and put the earlier date first.").setColor('7')
+            .get()),
+    EXPORT_UNAVAILABLE(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Trade export is not available, check the console for errors.").setColor('7')
             .get());
 
     private final String message;
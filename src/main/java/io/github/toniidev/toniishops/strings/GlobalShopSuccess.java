@@ -10,6 +10,37 @@ public enum GlobalShopSuccess {
             .append("[Server]").setColor('a')
             .append("Global shop:").setColor('e')
             .append("Item sold successfully for").setColor('7')
+            .get()),
+    /**
+     * When I use this, the code is usually like this: Player#sendMessage(new StringFactory(%this_enum%).append("#" + Order.getId()).setColor('f').get())
+     */
+    ORDER_PLACED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Order placed. It will be matched within a second. Order id:").setColor('7')
+            .get()),
+    ORDER_CANCELLED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Order cancelled. What was left of it has been given back to you.").setColor('7')
+            .get()),
+    ALERT_SET(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Price alert set. You will be notified when the sell price crosses it.").setColor('7')
+            .get()),
+    /**
+     * When I use this, the code is usually like this: Player#sendMessage(new StringFactory(%this_enum%).append(File.getName()).setColor('f').get())
+     */
+    EXPORT_STARTED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("Exporting the trades, you will be notified when the file is ready.").setColor('7')
+            .get()),
+    EXPORT_COMPLETED(new StringFactory()
+            .append("[Server]").setColor('a')
+            .append("Global shop:").setColor('e')
+            .append("The trades have been exported to").setColor('7')
             .get());
 
     private final String message;
@@ -4,6 +4,28 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 
 public class NumberUtils {
+    /**
+     * The Euler-Mascheroni constant, used to turn the digamma function into harmonic numbers
+     */
+    private static final double EULER_MASCHERONI = 0.5772156649015329;
+
+    /**
+     * Harmonic numbers below this index are read from HARMONIC_TABLE, the other ones are evaluated
+     * with the asymptotic expansion of the digamma function, that is already exact to the last bit there
+     */
+    private static final int HARMONIC_TABLE_SIZE = 4096;
+
+    /**
+     * HARMONIC_TABLE[n] = 1 + 1/2 + ... + 1/n. It is filled once when this class gets loaded
+     */
+    private static final double[] HARMONIC_TABLE = new double[HARMONIC_TABLE_SIZE];
+
+    static {
+        for (int i = 1; i < HARMONIC_TABLE_SIZE; i++) {
+            HARMONIC_TABLE[i] = HARMONIC_TABLE[i - 1] + 1.0 / i;
+        }
+    }
+
     /**
      * Find the minimum amount of rows an Inventory has to be done of based on how many ItemStacks
      * have to be in that Inventory.
@@ -45,6 +67,16 @@ public class NumberUtils {
         }
     }
 
+    public static boolean isLong(String string) {
+        if (string == null || string.isEmpty()) return false; // Null or empty check
+        try {
+            Long.parseLong(string);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
     public static boolean isDouble(String string) {
         if (string == null || string.isEmpty()) return false; // Null or empty check
         try {
@@ -54,4 +86,66 @@ public class NumberUtils {
             return false;
         }
     }
+
+    /**
+     * Gets the n-th harmonic number, that is 1 + 1/2 + ... + 1/n, in constant time
+     *
+     * @param n The index of the harmonic number. It must not be negative
+     * @return The n-th harmonic number. H(0) is 0
+     */
+    public static double harmonic(long n) {
+        if (n < HARMONIC_TABLE_SIZE) return HARMONIC_TABLE[(int) n];
+        return digamma(n + 1) + EULER_MASCHERONI;
+    }
+
+    /**
+     * Gets H(to) - H(from), that is 1/(from + 1) + 1/(from + 2) + ... + 1/to, in constant time.
+     * It avoids subtracting two big harmonic numbers, which would lose precision when they are close
+     *
+     * @param from The index of the harmonic number to subtract. It must not be negative
+     * @param to   The index of the harmonic number to subtract from. It must not be lower than from
+     * @return The sum of the reciprocals of every integer in (from, to]
+     * @throws IllegalArgumentException If from is negative, as the sum would include 1/0
+     */
+    public static double harmonicDifference(long from, long to) {
+        if (from < 0) throw new IllegalArgumentException("The harmonic difference can't start from " + from);
+        if (to <= from) return 0.0;
+        if (to < HARMONIC_TABLE_SIZE) return HARMONIC_TABLE[(int) to] - HARMONIC_TABLE[(int) from];
+
+        /// Few terms: summing them directly is both faster and more precise
+        if (to - from <= 64) {
+            double value = 0.0;
+            for (long k = to; k > from; k--) value += 1.0 / k;
+            return value;
+        }
+
+        if (from < HARMONIC_TABLE_SIZE) return harmonic(to) - HARMONIC_TABLE[(int) from];
+
+        /// digamma(to + 1) - digamma(from + 1), keeping the logarithms together
+        double a = from + 1, b = to + 1;
+        return Math.log1p((b - a) / a) + digammaCorrection(b) - digammaCorrection(a);
+    }
+
+    /**
+     * Evaluates the digamma function with its asymptotic expansion. It is only meant to be used
+     * with big arguments, for which the truncation error is way below double precision
+     *
+     * @param x The argument of the function. It should be greater than HARMONIC_TABLE_SIZE
+     * @return digamma(x)
+     */
+    private static double digamma(double x) {
+        return Math.log(x) + digammaCorrection(x);
+    }
+
+    /**
+     * Gets digamma(x) - ln(x) with the asymptotic series, truncated at the x^-6 term
+     *
+     * @param x The argument of the function
+     * @return The part of the asymptotic expansion of digamma(x) that is not the logarithm
+     */
+    private static double digammaCorrection(double x) {
+        double inv = 1.0 / x;
+        double inv2 = inv * inv;
+        return -0.5 * inv - inv2 * (1.0 / 12 - inv2 * (1.0 / 120 - inv2 / 252));
+    }
 }
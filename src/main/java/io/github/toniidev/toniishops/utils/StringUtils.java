@@ -200,4 +200,32 @@ public class StringUtils {
 
         return mostAffine;
     }
+
+    /**
+     * Parses a duration written by a player, like "30s", "15m", "12h" or "7d"
+     *
+     * @param string The string to parse
+     * @return The duration in milliseconds, or -1 if the string is not a valid duration
+     */
+    public static long parseDuration(String string) {
+        if (string == null || string.length() < 2) return -1;
+
+        long unit;
+        switch (Character.toLowerCase(string.charAt(string.length() - 1))) {
+            case 's' -> unit = 1000L;
+            case 'm' -> unit = 60 * 1000L;
+            case 'h' -> unit = 60 * 60 * 1000L;
+            case 'd' -> unit = 24 * 60 * 60 * 1000L;
+            default -> {
+                return -1;
+            }
+        }
+
+        try {
+            long value = Long.parseLong(string.substring(0, string.length() - 1));
+            return value < 0 ? -1 : Math.multiplyExact(value, unit);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.interfaces.PricingCurve;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+    private static final long BASE_PRICE = 10_000;
+
+    /// The sell price of an item priced by a curve
+    private static Money price(PricingCurve curve, long amountOnTheMarket) {
+        return Money.ofCents(Math.round(BASE_PRICE * curve.getFactor(amountOnTheMarket)));
+    }
+
+    @Test
+    public void routineTradesDontHaltTrading() {
+        PricingCurve[] curves = {new HyperbolicPricingCurve(100, 1.25), new ConstantProductPricingCurve(273.2, 1.25),
+                new ExponentialPricingCurve(182.05, 1.25), new LogisticPricingCurve(124.27, 1.25)};
+        for (PricingCurve curve : curves) {
+            CircuitBreaker breaker = new CircuitBreaker(price(curve, 200));
+
+            /// Two stacks sold, then one bought back, at the default amount on the market
+            assertFalse(breaker.record(128, price(curve, 328), 1_000));
+            assertFalse(breaker.record(64, price(curve, 264), 2_000));
+            assertFalse(breaker.isHalted(3_000));
+        }
+    }
+
+    @Test
+    public void crashesHaltTrading() {
+        PricingCurve curve = new HyperbolicPricingCurve(100, 1.25);
+        CircuitBreaker breaker = new CircuitBreaker(price(curve, 200));
+
+        /// A full inventory dumped one stack at a time
+        boolean halted = false;
+        for (int i = 1; i <= 36 && !halted; i++) halted = breaker.record(64, price(curve, 200 + 64L * i), 1_000 + i * 500L);
+
+        assertTrue(halted);
+        assertTrue(breaker.isHalted(20_000));
+    }
+
+    @Test
+    public void restocksDontForgetTheWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(Money.ofCents(10_000));
+        assertFalse(breaker.record(300, Money.ofCents(8_000), 1_000));
+
+        /// The market tick raises the price back a bit in the middle of the crash
+        breaker.shift(500);
+        assertFalse(breaker.isHalted(31_000));
+
+        assertTrue(breaker.record(300, Money.ofCents(6_500), 31_000));
+    }
+
+    @Test
+    public void restocksDontHaltTrading() {
+        CircuitBreaker breaker = new CircuitBreaker(Money.ofCents(10_000));
+        assertFalse(breaker.record(600, Money.ofCents(10_000), 1_000));
+
+        breaker.shift(-5_000);
+        assertFalse(breaker.record(1, Money.ofCents(5_000), 2_000));
+    }
+}
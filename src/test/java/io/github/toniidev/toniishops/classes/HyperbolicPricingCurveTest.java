@@ -0,0 +1,105 @@
+package io.github.toniidev.toniishops.classes;
+
+import io.github.toniidev.toniishops.interfaces.PricingCurve;
+import io.github.toniidev.toniishops.utils.NumberUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the closed form GlobalShopItem prices trades with against the per-unit loop it replaced.
+ * The closed form rounds every trade to the cent once, so it is checked against the exact sum of the
+ * prices of the items, and against the original loop, that rounded every item, only for single items
+ */
+public class HyperbolicPricingCurveTest {
+    private static final int CASES = 3_000;
+
+    /**
+     * The original GlobalShopItem#getCumulativeSellPrice(): every item is priced at the current amount
+     * on the market, rounded to the cent, and the amount grows by one after each item
+     *
+     * @return The price of the whole trade, in cents
+     */
+    private static long baselineLoop(double basePrice, long amountOnTheMarket, long amount) {
+        double value = 0;
+        for (long i = 0; i < amount; i++) {
+            value += NumberUtils.round(basePrice / (1 + ((amountOnTheMarket + i) / 100.0)), 2);
+        }
+        return Math.round(NumberUtils.round(value, 2) * 100);
+    }
+
+    /// The same loop without rounding each item, in cents
+    private static double exactLoop(long basePrice, long amountOnTheMarket, long amount) {
+        double value = 0;
+        for (long i = 0; i < amount; i++) {
+            value += basePrice * 100.0 / (100 + amountOnTheMarket + i);
+        }
+        return value;
+    }
+
+    /// What GlobalShopItem#getCumulativeSellPrice() computes
+    private static long closedForm(PricingCurve curve, long basePrice, long amountOnTheMarket, long amount) {
+        return Math.round(basePrice * curve.getFactorSum(amountOnTheMarket, amount));
+    }
+
+    private static void check(PricingCurve curve, long seed) {
+        Random random = new Random(seed);
+        for (int i = 0; i < CASES; i++) {
+            long basePrice = 1 + random.nextInt(200_000);
+            /// Cover the precomputed table, the harmonic table and the asymptotic expansion
+            long stock = switch (random.nextInt(3)) {
+                case 0 -> random.nextInt(200);
+                case 1 -> random.nextInt(GlobalShop.PRICING_TABLE_SIZE);
+                default -> random.nextInt(1_000_000);
+            };
+            long amount = 1 + random.nextInt(36 * 64);
+            String name = "base " + basePrice + ", stock " + stock + ", amount " + amount;
+
+            /// Trades are rounded to the cent once, so summing the exact price of every item gives the same cents
+            assertEquals(Math.round(exactLoop(basePrice, stock, amount)), closedForm(curve, basePrice, stock, amount), 1, name);
+        }
+    }
+
+    @Test
+    public void closedFormMatchesThePerUnitLoop() {
+        check(new HyperbolicPricingCurve(100, 1.25), 1);
+    }
+
+    @Test
+    public void precomputedTableMatchesThePerUnitLoop() {
+        check(new HyperbolicPricingCurve(100, 1.25).precompute(GlobalShop.PRICING_TABLE_SIZE), 2);
+    }
+
+    @Test
+    public void buyingMoreThanIsAvailableIsPricedAsIfThereWereJustEnough() {
+        PricingCurve[] curves = {new HyperbolicPricingCurve(100, 1.25),
+                new HyperbolicPricingCurve(100, 1.25).precompute(GlobalShop.PRICING_TABLE_SIZE),
+                new ConstantProductPricingCurve(200, 1.25)};
+        for (PricingCurve curve : curves) {
+            double sum = curve.getBuyFactorSum(10, 64);
+            assertTrue(Double.isFinite(sum) && sum > 0, "sum " + sum);
+            assertEquals(curve.getFactorSum(0, 64), sum, 1e-12);
+            assertEquals(curve.getFactorSum(0, 64), curve.getBuyFactorSum(0, 64), 1e-12);
+
+            /// Within the available amount, the items go from it downwards
+            assertEquals(curve.getFactorSum(37, 64), curve.getBuyFactorSum(100, 64), 1e-12);
+            assertEquals(0.0, curve.getBuyFactorSum(100, 0));
+        }
+    }
+
+    @Test
+    public void singleItemsMatchTheBaselineToTheCent() {
+        PricingCurve curve = new HyperbolicPricingCurve(100, 1.25);
+        Random random = new Random(3);
+        for (int i = 0; i < CASES; i++) {
+            long basePrice = 1 + random.nextInt(200_000);
+            long stock = random.nextInt(100_000);
+
+            assertEquals(baselineLoop(basePrice / 100.0, stock, 1), closedForm(curve, basePrice, stock, 1), 1,
+                    "base " + basePrice + ", stock " + stock);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.toniidev.toniishops.classes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MarketSpreadTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @Test
+    public void neverTradedItemsKeepTheBaseMargin() {
+        MarketSpread spread = new MarketSpread(1.25);
+        assertFalse(spread.decay(HOUR));
+        assertEquals(1.25, spread.getMargin(), 1e-12);
+    }
+
+    @Test
+    public void spreadWidensWhenTradingStops() {
+        MarketSpread spread = new MarketSpread(1.25);
+        for (int i = 0; i < 100; i++) spread.record(64, 1.0, 1.0, 1_000 + i);
+        double liquid = spread.getMargin();
+        assertTrue(liquid < 1.1, "liquid margin " + liquid);
+
+        /// Without trades, only the market tick can widen it again
+        assertTrue(spread.decay(1_000 + 6 * HOUR));
+        assertTrue(spread.getMargin() > liquid);
+
+        spread.decay(1_000 + 100 * HOUR);
+        assertEquals(1.25, spread.getMargin(), 1e-3);
+    }
+
+    @Test
+    public void tinyChangesDontMoveTheMargin() {
+        MarketSpread spread = new MarketSpread(1.25);
+        spread.record(64, 1.0, 1.0, 1_000);
+        double margin = spread.getMargin();
+
+        assertFalse(spread.decay(1_001));
+        assertEquals(margin, spread.getMargin());
+        /// The volume is only faded together with the margin
+        assertEquals(64, spread.getVolume());
+    }
+
+    @Test
+    public void volatilityFadesWhenThePriceIsStableAgain() {
+        MarketSpread spread = new MarketSpread(1.25);
+        for (int i = 0; i < 20; i++) spread.record(64, 1.0, i % 2 == 0 ? 1.2 : 1 / 1.2, 1_000 + i);
+        assertTrue(spread.getMargin() > 1.25, "volatile margin " + spread.getMargin());
+
+        assertTrue(spread.decay(1_000 + 6 * HOUR));
+        double volatility = spread.getVolatility();
+        assertTrue(volatility > 0);
+
+        spread.decay(1_000 + 200 * HOUR);
+        assertTrue(spread.getVolatility() < volatility);
+        assertEquals(1.25, spread.getMargin(), 1e-3);
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.toniidev.toniishops.classes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MoneyTest {
+    @Test
+    public void parsesAmountsWrittenByPlayers() {
+        assertEquals(Money.ofCents(1200), Money.parse("12"));
+        assertEquals(Money.ofCents(1250), Money.parse("12.5"));
+        assertEquals(Money.ofCents(1250), Money.parse(" 12.50$ "));
+        assertEquals(Money.ofCents(1251), Money.parse("12.505"));
+        assertEquals(Money.ofCents(-50), Money.parse("-.5"));
+    }
+
+    @Test
+    public void rejectsMalformedAmounts() {
+        assertNull(Money.parse(null));
+        assertNull(Money.parse(""));
+        assertNull(Money.parse("."));
+        assertNull(Money.parse("12a"));
+        assertNull(Money.parse("1.2.3"));
+    }
+
+    @Test
+    public void rejectsAmountsThatDontFitInALong() {
+        assertNull(Money.parse("99999999999999999999"));
+        assertNull(Money.parse("92233720368547758.08"));
+        assertNull(Money.parse("92233720368547758.075"));
+        assertNull(Money.parse("-1000000000000000000000000"));
+        assertEquals(Money.ofCents(Long.MAX_VALUE), Money.parse("92233720368547758.07"));
+    }
+}
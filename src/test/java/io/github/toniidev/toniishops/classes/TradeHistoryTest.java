@@ -0,0 +1,73 @@
+package io.github.toniidev.toniishops.classes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TradeHistoryTest {
+    private static final UUID PLAYER = new UUID(1, 2);
+
+    private static TradeHistory history(int capacity, int trades) {
+        TradeHistory value = new TradeHistory(capacity);
+        for (int i = 0; i < trades; i++) value.add(i, PLAYER, i + 1, Money.ofCents(100L * i));
+        return value;
+    }
+
+    private static byte[] bytes(TradeHistory history) throws IOException {
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        history.write(new DataOutputStream(value));
+        return value.toByteArray();
+    }
+
+    private static void assertSameTrades(TradeHistory expected, TradeHistory actual) throws IOException {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.getTotal(), actual.getTotal());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getTime(i), actual.getTime(i));
+            assertEquals(expected.getAmount(i), actual.getAmount(i));
+            assertEquals(expected.getPrice(i), actual.getPrice(i));
+        }
+        assertEquals(new String(bytes(expected)), new String(bytes(actual)));
+    }
+
+    @Test
+    public void copyKeepsOnlyTheStoredTrades() throws IOException {
+        TradeHistory history = history(1024, 3);
+        TradeHistory copy = history.copy();
+
+        assertEquals(3, copy.getCapacity());
+        assertSameTrades(history, copy);
+    }
+
+    @Test
+    public void copyKeepsTheOrderOfAWrappedBuffer() throws IOException {
+        TradeHistory history = history(16, 40);
+        TradeHistory copy = history.copy();
+
+        assertEquals(16, copy.getCapacity());
+        assertEquals(24, copy.getTime(0));
+        assertSameTrades(history, copy);
+    }
+
+    @Test
+    public void copyOfAnEmptyHistoryIsEmpty() throws IOException {
+        TradeHistory copy = history(1024, 0).copy();
+
+        assertEquals(0, copy.size());
+        assertSameTrades(history(1024, 0), copy);
+    }
+
+    @Test
+    public void copyIsNotChangedByNewTrades() throws IOException {
+        TradeHistory history = history(8, 5);
+        TradeHistory copy = history.copy();
+        history.add(100, PLAYER, 1, Money.ofCents(1));
+
+        assertSameTrades(history(8, 5), copy);
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.toniidev.toniishops.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NumberUtilsTest {
+    /// Sums the reciprocals from the smallest term up, which is the most precise order
+    private static double sum(long from, long to) {
+        double value = 0.0;
+        for (long k = to; k > from; k--) value += 1.0 / k;
+        return value;
+    }
+
+    @Test
+    public void harmonicMatchesTheDefinition() {
+        for (long n = 0; n < 10_000; n++) {
+            assertEquals(sum(0, n), NumberUtils.harmonic(n), 1e-12, "H(" + n + ")");
+        }
+    }
+
+    @Test
+    public void harmonicDifferenceMatchesTheDirectSum() {
+        Random random = new Random(1);
+        for (int i = 0; i < 5_000; i++) {
+            /// Cover the table, the direct sum and the asymptotic expansion
+            long from = random.nextInt(3) == 0 ? random.nextInt(4096) : random.nextInt(200_000);
+            long to = from + random.nextInt(5_000);
+
+            double expected = sum(from, to);
+            assertEquals(expected, NumberUtils.harmonicDifference(from, to), Math.max(1e-13, expected * 1e-12),
+                    "H(" + to + ") - H(" + from + ")");
+        }
+    }
+
+    @Test
+    public void harmonicDifferenceOfAnEmptyRangeIsZero() {
+        assertEquals(0.0, NumberUtils.harmonicDifference(10, 10));
+        assertEquals(0.0, NumberUtils.harmonicDifference(10_000, 5));
+    }
+
+    @Test
+    public void harmonicDifferenceRejectsNegativeIndexes() {
+        assertThrows(IllegalArgumentException.class, () -> NumberUtils.harmonicDifference(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> NumberUtils.harmonicDifference(-5_000, 5_000));
+    }
+}